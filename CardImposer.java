@@ -0,0 +1,483 @@
+package org.example.recipevault;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * CardImposer lays recipe cards out 2-up or 4-up on letter or A4 sheets with crop marks, for printing.
+ * Each template page background is imported once per output file as a Form XObject and drawn under every card
+ * of that theme. Each card adds only its field layer: the filled template page with its own contents and
+ * resources blanked before the form is flattened, so only the field text is left. The fonts of the field
+ * layers are shared between cards.
+ * Output pages are kept in temporary files rather than on the heap, and long runs are split into several files
+ * of a bounded number of sheets, so memory use does not grow with the number of cards.
+ */
+public class CardImposer {
+
+    /**
+     * How many cards go on a sheet, and which way up the sheet is.
+     */
+    public enum Layout {
+        /** Two cards side by side on a landscape sheet. */
+        TWO_UP(2, 1, true),
+        /** Four cards, two by two, on a portrait sheet. */
+        FOUR_UP(2, 2, false);
+
+        private final int columns;
+        private final int rows;
+        private final boolean landscape;
+
+        Layout(int columns, int rows, boolean landscape) {
+            this.columns = columns;
+            this.rows = rows;
+            this.landscape = landscape;
+        }
+
+        public int getCardsPerSheet() {
+            return columns * rows;
+        }
+    }
+
+    /**
+     * What an imposition run wrote.
+     */
+    public static class Result {
+        private final List<Path> files = new ArrayList<>();
+        private final Map<String, String> skipped = new LinkedHashMap<>();
+        private int cards;
+        private int sheets;
+
+        /**
+         * @return The PDF files written, in order.
+         */
+        public List<Path> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return The recipes that could not be imposed, by name, with the reason.
+         */
+        public Map<String, String> getSkipped() {
+            return skipped;
+        }
+
+        public int getCards() {
+            return cards;
+        }
+
+        public int getSheets() {
+            return sheets;
+        }
+    }
+
+    // Sheet margin, and the space left around each card for its crop marks
+    private static final float MARGIN = 18;
+    private static final float MARK_OFFSET = 3;
+    private static final float MARK_LENGTH = 12;
+    private static final float MARK_SPACE = MARK_OFFSET + MARK_LENGTH;
+
+    // Scratch memory of each output file before it spills to temporary files
+    private static final long OUTPUT_MEMORY = 16L * 1024 * 1024;
+
+    // Font dictionaries nested deeper than this, such as Type 3 fonts drawing forms, are not shared
+    private static final int MAX_FONT_DEPTH = 8;
+
+    private final Layout layout;
+    private final PDRectangle sheetSize;
+
+    // State of the output file being written
+    private PDDocument document;
+    private LayerUtility backgroundImporter;
+    private final Map<String, PDFormXObject> backgrounds = new HashMap<>();
+    private final Map<String, COSBase> sharedFonts = new HashMap<>();
+    private PDPageContentStream sheet;
+    private int sheetsInFile;
+    private int cell;
+
+    private CardImposer(Layout layout, PDRectangle paper) {
+        this.layout = layout;
+        this.sheetSize = layout.landscape ? new PDRectangle(paper.getHeight(), paper.getWidth()) : paper;
+    }
+
+    /**
+     * Imposes the cards of recipes onto sheets. Each recipe gives a front card, followed by a card of its notes
+     * page when it has notes.
+     *
+     * @param recipes       The recipes.
+     * @param layout        The number of cards per sheet.
+     * @param paper         The sheet size in portrait orientation, e.g. {@link PDRectangle#LETTER} or {@link PDRectangle#A4}.
+     * @param output        The PDF to write. When more than one file is needed they are numbered, e.g. cards-001.pdf.
+     * @param sheetsPerFile The number of sheets after which a new file is started.
+     * @return The files written and the recipes skipped.
+     * @throws IOException If a template cannot be read or an output file cannot be written.
+     */
+    public static Result impose(List<Recipe> recipes, Layout layout, PDRectangle paper, Path output, int sheetsPerFile)
+            throws IOException {
+        CardImposer imposer = new CardImposer(layout, paper);
+        Result result = new Result();
+
+        try {
+            for (int i = 0; i < recipes.size(); i++) {
+                Recipe recipe = recipes.get(i);
+                if (imposer.document == null) {
+                    imposer.open();
+                }
+                try {
+                    result.cards += imposer.addRecipe(recipe);
+                } catch (IOException | RuntimeException e) {
+                    result.skipped.put(recipe.getName(), String.valueOf(e.getMessage()));
+                    continue;
+                }
+                // A recipe's cards stay in one file, so a file can end one sheet past the limit
+                if (imposer.sheetsInFile >= sheetsPerFile && (imposer.cell == 0 || imposer.sheetsInFile > sheetsPerFile)) {
+                    result.sheets += imposer.sheetsInFile;
+                    result.files.add(imposer.save(output, result.files.size() + 1, i < recipes.size() - 1));
+                }
+            }
+            if (imposer.document != null && imposer.sheetsInFile > 0) {
+                result.sheets += imposer.sheetsInFile;
+                result.files.add(imposer.save(output, result.files.size() + 1, false));
+            }
+        } finally {
+            imposer.close();
+        }
+        return result;
+    }
+
+    private void open() {
+        document = new PDDocument(MemoryUsageSetting.setupMixed(OUTPUT_MEMORY));
+        backgroundImporter = new LayerUtility(document);
+        backgrounds.clear();
+        sharedFonts.clear();
+        sheetsInFile = 0;
+        cell = 0;
+    }
+
+    private Path save(Path output, int number, boolean more) throws IOException {
+        endSheet();
+        Path file = output;
+        if (number > 1 || more) {
+            String name = output.getFileName().toString();
+            int dot = name.toLowerCase(Locale.ROOT).endsWith(".pdf") ? name.length() - 4 : name.length();
+            file = output.resolveSibling(String.format(Locale.ROOT, "%s-%03d.pdf", name.substring(0, dot), number));
+        }
+        document.save(file.toFile());
+        close();
+        return file;
+    }
+
+    private void close() throws IOException {
+        if (sheet != null) {
+            sheet.close();
+            sheet = null;
+        }
+        if (document != null) {
+            document.close();
+            document = null;
+        }
+    }
+
+    // Fills the recipe's template, turns its pages into field layers and places them; returns the cards placed
+    private int addRecipe(Recipe recipe) throws IOException {
+        String templateFileName = RecipePDFWriter.templateFileName(recipe.getTheme());
+        if (templateFileName == null) {
+            throw new IOException("Invalid theme: " + recipe.getTheme());
+        }
+        byte[] template = RecipePDFWriter.loadTemplate(templateFileName);
+        int pages = recipe.getNotes().trim().isEmpty() ? 1 : 2;
+
+        List<PDFormXObject> fieldLayers = new ArrayList<>();
+        List<PDRectangle> boxes = new ArrayList<>();
+        try (PDDocument filled = PDDocument.load(template)) {
+            PDAcroForm acroForm = filled.getDocumentCatalog().getAcroForm();
+            if (acroForm == null) {
+                throw new IOException("No form fields found in the PDF template.");
+            }
+            RecipePDFWriter.fillForm(filled, acroForm, RecipePDFWriter.fieldValues(recipe));
+
+            // Blank the pages so flattening leaves only the field appearances
+            for (PDPage page : filled.getPages()) {
+                page.setContents(new PDStream(filled));
+                page.setResources(new PDResources());
+            }
+            acroForm.flatten();
+
+            // A fresh importer per card: its clone cache would otherwise keep every card's objects alive
+            LayerUtility importer = new LayerUtility(document);
+            for (int i = 0; i < pages && i < filled.getNumberOfPages(); i++) {
+                PDPage page = filled.getPage(i);
+                page.setAnnotations(Collections.<PDAnnotation>emptyList());
+                PDFormXObject layer = importer.importPageAsForm(filled, page);
+                shareFonts(layer.getResources(), 0);
+                fieldLayers.add(layer);
+                boxes.add(page.getCropBox());
+            }
+        }
+
+        for (int i = 0; i < fieldLayers.size(); i++) {
+            placeCard(background(templateFileName, template, i), fieldLayers.get(i), boxes.get(i));
+        }
+        return fieldLayers.size();
+    }
+
+    // The template page imported once per output file
+    private PDFormXObject background(String templateFileName, byte[] template, int page) throws IOException {
+        String key = templateFileName + "#" + page;
+        PDFormXObject background = backgrounds.get(key);
+        if (background == null) {
+            try (PDDocument source = PDDocument.load(template)) {
+                background = backgroundImporter.importPageAsForm(source, page);
+            }
+            backgrounds.put(key, background);
+        }
+        return background;
+    }
+
+    // Points font resources of the field layer, and of the forms it draws, at the copy of the same font
+    // already in the output file, so each embedded font is written once
+    private void shareFonts(PDResources resources, int depth) throws IOException {
+        if (resources == null || depth > 4) {
+            return;
+        }
+        COSDictionary fonts = resources.getCOSObject().getCOSDictionary(COSName.FONT);
+        if (fonts != null) {
+            for (COSName name : fonts.keySet()) {
+                COSBase font = fonts.getDictionaryObject(name);
+                String key = font instanceof COSDictionary ? fontKey((COSDictionary) font) : null;
+                if (key != null) {
+                    COSBase shared = sharedFonts.putIfAbsent(key, font);
+                    if (shared != null && shared != font) {
+                        fonts.setItem(name, shared);
+                    }
+                }
+            }
+        }
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xobject = resources.getXObject(name);
+            if (xobject instanceof PDFormXObject) {
+                shareFonts(((PDFormXObject) xobject).getResources(), depth + 1);
+            }
+        }
+    }
+
+    // Digest of everything the font dictionary reaches: name, encoding, widths, descriptor and the bytes of the
+    // embedded program. Fallback subsets carry no subset tag, so subsets of one font differ only in content.
+    // Null for a font too deeply nested to digest, which is then not shared
+    private static String fontKey(COSDictionary font) throws IOException {
+        MessageDigest digest = Recipe.sha256();
+        return update(digest, font, 0) ? Recipe.toHex(digest.digest()) : null;
+    }
+
+    private static boolean update(MessageDigest digest, COSBase value, int depth) throws IOException {
+        if (value instanceof COSObject) {
+            value = ((COSObject) value).getObject();
+        }
+        if (depth > MAX_FONT_DEPTH) {
+            return false;
+        }
+        if (value instanceof COSDictionary) {
+            COSDictionary dictionary = (COSDictionary) value;
+            List<COSName> keys = new ArrayList<>(dictionary.keySet());
+            Collections.sort(keys);
+            updateToken(digest, "<<" + keys.size());
+            for (COSName key : keys) {
+                updateToken(digest, key.getName());
+                if (!update(digest, dictionary.getItem(key), depth + 1)) {
+                    return false;
+                }
+            }
+            if (value instanceof COSStream) {
+                try (InputStream input = ((COSStream) value).createRawInputStream()) {
+                    byte[] buffer = new byte[8192];
+                    for (int read = input.read(buffer); read >= 0; read = input.read(buffer)) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                updateToken(digest, "endstream");
+            }
+        } else if (value instanceof COSArray) {
+            COSArray array = (COSArray) value;
+            updateToken(digest, "[" + array.size());
+            for (int i = 0; i < array.size(); i++) {
+                if (!update(digest, array.get(i), depth + 1)) {
+                    return false;
+                }
+            }
+        } else if (value instanceof COSString) {
+            byte[] bytes = ((COSString) value).getBytes();
+            updateToken(digest, "(" + bytes.length);
+            digest.update(bytes);
+        } else if (value instanceof COSName) {
+            updateToken(digest, "/" + ((COSName) value).getName());
+        } else {
+            updateToken(digest, String.valueOf(value));
+        }
+        return true;
+    }
+
+    // Each token is length-prefixed so adjacent tokens cannot run together
+    private static void updateToken(MessageDigest digest, String token) {
+        byte[] bytes = token.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) (bytes.length >>> 8));
+        digest.update((byte) bytes.length);
+        digest.update(bytes);
+    }
+
+    private void placeCard(PDFormXObject background, PDFormXObject fieldLayer, PDRectangle box) throws IOException {
+        if (cell == 0) {
+            PDPage page = new PDPage(sheetSize);
+            document.addPage(page);
+            sheet = new PDPageContentStream(document, page);
+            sheetsInFile++;
+        }
+
+        float cellWidth = (sheetSize.getWidth() - 2 * MARGIN) / layout.columns;
+        float cellHeight = (sheetSize.getHeight() - 2 * MARGIN) / layout.rows;
+        int column = cell % layout.columns;
+        int row = cell / layout.columns;
+        float scale = Math.min((cellWidth - 2 * MARK_SPACE) / box.getWidth(), (cellHeight - 2 * MARK_SPACE) / box.getHeight());
+        float width = box.getWidth() * scale;
+        float height = box.getHeight() * scale;
+        // Cards fill the sheet from the top left
+        float x = MARGIN + column * cellWidth + (cellWidth - width) / 2;
+        float y = sheetSize.getHeight() - MARGIN - (row + 1) * cellHeight + (cellHeight - height) / 2;
+
+        Matrix matrix = new Matrix(scale, 0, 0, scale, x - box.getLowerLeftX() * scale, y - box.getLowerLeftY() * scale);
+        for (PDFormXObject form : new PDFormXObject[]{background, fieldLayer}) {
+            sheet.saveGraphicsState();
+            sheet.transform(matrix);
+            sheet.drawForm(form);
+            sheet.restoreGraphicsState();
+        }
+        drawCropMarks(x, y, width, height);
+
+        cell++;
+        if (cell == layout.getCardsPerSheet()) {
+            endSheet();
+        }
+    }
+
+    // Short lines outside each corner of the card, in line with its edges
+    private void drawCropMarks(float x, float y, float width, float height) throws IOException {
+        sheet.setLineWidth(0.25f);
+        sheet.setStrokingColor(0f);
+        for (float cornerX : new float[]{x, x + width}) {
+            for (float cornerY : new float[]{y, y + height}) {
+                float outX = cornerX == x ? -1 : 1;
+                float outY = cornerY == y ? -1 : 1;
+                sheet.moveTo(cornerX + outX * MARK_OFFSET, cornerY);
+                sheet.lineTo(cornerX + outX * MARK_SPACE, cornerY);
+                sheet.moveTo(cornerX, cornerY + outY * MARK_OFFSET);
+                sheet.lineTo(cornerX, cornerY + outY * MARK_SPACE);
+            }
+        }
+        sheet.stroke();
+    }
+
+    private void endSheet() throws IOException {
+        if (sheet != null) {
+            sheet.close();
+            sheet = null;
+        }
+        cell = 0;
+    }
+
+    /**
+     * Imposes recipe cards from the vault for printing.
+     * Usage: CardImposer [--layout 2up|4up] [--paper letter|a4] [--sheets-per-file N] --out cards.pdf [recipe...]
+     * where each recipe is a vault id (#12 or 12) or a recipe name. Without recipes, the whole vault is imposed.
+     *
+     * @param args The options and recipes.
+     * @throws IOException If the vault cannot be read or the PDF cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Layout layout = Layout.FOUR_UP;
+        PDRectangle paper = PDRectangle.LETTER;
+        int sheetsPerFile = 250;
+        Path output = null;
+        List<String> selection = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--layout":
+                    layout = args[++i].equalsIgnoreCase("2up") ? Layout.TWO_UP : Layout.FOUR_UP;
+                    break;
+                case "--paper":
+                    paper = args[++i].equalsIgnoreCase("a4") ? PDRectangle.A4 : PDRectangle.LETTER;
+                    break;
+                case "--sheets-per-file":
+                    sheetsPerFile = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    output = Paths.get(args[++i]);
+                    break;
+                default:
+                    selection.add(args[i]);
+            }
+        }
+        if (output == null) {
+            System.err.println("Usage: CardImposer [--layout 2up|4up] [--paper letter|a4] [--sheets-per-file N] --out cards.pdf [recipe...]");
+            System.exit(2);
+        }
+
+        RecipeStore store = RecipeStore.open(RecipeStore.DEFAULT_DIRECTORY);
+        List<Recipe> recipes = new ArrayList<>();
+        if (selection.isEmpty()) {
+            recipes.addAll(store.getAll().values());
+        }
+        for (String wanted : selection) {
+            Recipe recipe = MealPlanner.findRecipe(store, wanted);
+            if (recipe == null) {
+                System.err.println("No recipe in the vault matches '" + wanted + "'");
+                System.exit(1);
+            }
+            recipes.add(recipe);
+        }
+
+        long start = System.nanoTime();
+        Result result = impose(recipes, layout, paper, output, sheetsPerFile);
+        long elapsed = System.nanoTime() - start;
+
+        for (Path file : result.getFiles()) {
+            System.out.println("Saved " + file);
+        }
+        for (Map.Entry<String, String> skipped : result.getSkipped().entrySet()) {
+            System.err.println("Skipped " + skipped.getKey() + ": " + skipped.getValue());
+        }
+        System.out.printf(Locale.ROOT, "%d cards on %d sheets in %.1f s%n", result.getCards(), result.getSheets(), elapsed / 1e9);
+        if (!result.getSkipped().isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.recipevault;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DurationIndex answers "which recipes take between x and y minutes" for one time field.
+ * Each recipe is packed into a single long, minutes in the high bits and id in the low bits,
+ * and the longs are kept sorted, so a range query is two binary searches over a primitive array
+ * and reads no recipe text.
+ */
+public class DurationIndex {
+
+    // Ids below 2^40 fit next to the minutes; the store hands out ids from 1 upwards
+    private static final int ID_BITS = 40;
+    private static final long ID_MASK = (1L << ID_BITS) - 1;
+
+    // Durations longer than this, about 15 years, are indexed as this many minutes
+    private static final long MAX_MINUTES = (1L << (63 - ID_BITS)) - 1;
+
+    private final long[] entries;
+
+    private DurationIndex(long[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Builds an index from parallel arrays of recipe ids and durations. Unknown durations are left out.
+     *
+     * @param ids     The recipe ids.
+     * @param minutes The duration of each recipe in minutes, or a negative value if unknown.
+     * @param count   The number of entries to read from the arrays.
+     * @return The index.
+     */
+    public static DurationIndex build(long[] ids, int[] minutes, int count) {
+        long[] entries = new long[count];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (minutes[i] >= 0) {
+                entries[size++] = pack(minutes[i], ids[i]);
+            }
+        }
+        entries = Arrays.copyOf(entries, size);
+        Arrays.sort(entries);
+        return new DurationIndex(entries);
+    }
+
+    /**
+     * Finds the recipes whose duration is within a range, shortest first.
+     *
+     * @param minMinutes The shortest duration to include.
+     * @param maxMinutes The longest duration to include.
+     * @return The ids of the matching recipes.
+     */
+    public List<Long> find(int minMinutes, int maxMinutes) {
+        List<Long> ids = new ArrayList<>();
+        if (maxMinutes < minMinutes || maxMinutes < 0) {
+            return ids;
+        }
+        int from = insertionPoint(pack(Math.max(0, minMinutes), 0));
+        int to = maxMinutes >= MAX_MINUTES ? entries.length : insertionPoint(pack(maxMinutes + 1, 0));
+        for (int i = from; i < to; i++) {
+            ids.add(entries[i] & ID_MASK);
+        }
+        return ids;
+    }
+
+    /**
+     * @return The number of recipes with a known duration.
+     */
+    public int size() {
+        return entries.length;
+    }
+
+    private int insertionPoint(long key) {
+        int index = Arrays.binarySearch(entries, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static long pack(long minutes, long id) {
+        return (Math.min(minutes, MAX_MINUTES) << ID_BITS) | (id & ID_MASK);
+    }
+}
@@ -0,0 +1,153 @@
+package org.example.recipevault;
+
+import java.util.Locale;
+
+/**
+ * DurationParser reads the prep, cook and total times typed into the form as whole minutes.
+ * It understands "1h 20m", "1 hr 20 min", "90 min", "1.5 hours", "1 1/2 hours", "1:20", fraction
+ * characters such as U+00BD and ranges ("20-30 min", read as the midpoint). A bare number is minutes.
+ */
+public class DurationParser {
+
+    /** Returned when the text is empty or not a duration. */
+    public static final int UNKNOWN = -1;
+
+    private DurationParser() {
+    }
+
+    /**
+     * Parses a duration.
+     *
+     * @param text The duration as typed.
+     * @return The duration rounded to whole minutes, or {@link #UNKNOWN}.
+     */
+    public static int parseMinutes(String text) {
+        if (text == null) {
+            return UNKNOWN;
+        }
+        String value = text.trim().toLowerCase(Locale.ROOT);
+        int[] position = {0};
+        double minutes = 0;
+        int previousUnit = 0;
+        boolean found = false;
+
+        while (true) {
+            skipSeparators(value, position);
+            if (position[0] >= value.length()) {
+                break;
+            }
+
+            double amount = IngredientParser.readQuantity(value, position);
+            if (Double.isNaN(amount)) {
+                return UNKNOWN;
+            }
+
+            // Clock style "1:20"
+            if (position[0] < value.length() && value.charAt(position[0]) == ':') {
+                position[0]++;
+                double extra = IngredientParser.readQuantity(value, position);
+                if (Double.isNaN(extra) || extra >= 60) {
+                    return UNKNOWN;
+                }
+                minutes += amount * 60 + extra;
+                found = true;
+                previousUnit = 1;
+                skipWord(value, position);
+                continue;
+            }
+
+            skipSpaces(value, position);
+            int unit = readUnit(value, position);
+            if (unit < 0) {
+                return UNKNOWN;
+            }
+            if (unit == 0) {
+                // A bare number means minutes, including the "20" in "1h 20"
+                unit = 1;
+            }
+            if (previousUnit != 0 && unit >= previousUnit) {
+                // "20 min 1 h": units must get smaller
+                return UNKNOWN;
+            }
+            minutes += amount * unit;
+            previousUnit = unit;
+            found = true;
+        }
+        return found ? (int) Math.round(minutes) : UNKNOWN;
+    }
+
+    /**
+     * Writes a duration the way the form shows it, e.g. "1 hr 20 min", "45 min" or "2 hr".
+     *
+     * @param minutes The duration in minutes.
+     * @return The formatted duration, or an empty string for {@link #UNKNOWN}.
+     */
+    public static String format(int minutes) {
+        if (minutes < 0) {
+            return "";
+        }
+        int hours = minutes / 60;
+        int rest = minutes % 60;
+        if (hours == 0) {
+            return rest + " min";
+        }
+        return rest == 0 ? hours + " hr" : hours + " hr " + rest + " min";
+    }
+
+    // Minutes per unit for a unit word, 0 if there is no unit word, -1 for an unknown word
+    private static int readUnit(String text, int[] position) {
+        int start = position[0];
+        int end = start;
+        while (end < text.length() && Character.isLetter(text.charAt(end))) {
+            end++;
+        }
+        position[0] = end < text.length() && text.charAt(end) == '.' ? end + 1 : end;
+        switch (text.substring(start, end)) {
+            case "":
+                return 0;
+            case "d":
+            case "day":
+            case "days":
+                return 24 * 60;
+            case "h":
+            case "hr":
+            case "hrs":
+            case "hour":
+            case "hours":
+                return 60;
+            case "m":
+            case "min":
+            case "mins":
+            case "minute":
+            case "minutes":
+                return 1;
+            default:
+                return -1;
+        }
+    }
+
+    private static void skipWord(String text, int[] position) {
+        skipSpaces(text, position);
+        readUnit(text, position);
+    }
+
+    // Spaces, commas and "and" between the parts of "1 hour, 20 minutes" or "1 hour and 20 minutes"
+    private static void skipSeparators(String text, int[] position) {
+        while (true) {
+            skipSpaces(text, position);
+            if (position[0] < text.length() && (text.charAt(position[0]) == ',' || text.charAt(position[0]) == '+')) {
+                position[0]++;
+            } else if (text.startsWith("and ", position[0])) {
+                position[0] += 4;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static void skipSpaces(String text, int[] position) {
+        while (position[0] < text.length() && Character.isWhitespace(text.charAt(position[0]))) {
+            position[0]++;
+        }
+    }
+}
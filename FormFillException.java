@@ -0,0 +1,33 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * FormFillException is thrown when some fields of a template could not be filled, for example because
+ * no available font has glyphs for the text. The rendered PDF would be missing those fields, so it is not
+ * returned or cached.
+ */
+public class FormFillException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> fieldNames;
+
+    /**
+     * @param fieldNames The fields that could not be filled.
+     * @param message    The fields with the reason each failed.
+     */
+    public FormFillException(List<String> fieldNames, String message) {
+        super(message);
+        this.fieldNames = Collections.unmodifiableList(fieldNames);
+    }
+
+    /**
+     * @return The fields that could not be filled.
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+}
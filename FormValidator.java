@@ -0,0 +1,140 @@
+package org.example.recipevault;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.scene.Node;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * FormValidator checks the recipe form as it is edited.
+ * Each rule lists the properties it depends on and is re-run only when one of them changes,
+ * so typing in one field never re-validates the rest of the form.
+ * Invalid controls get the rv-invalid style class once errors are shown.
+ */
+public class FormValidator {
+
+    private static final String INVALID_STYLE_CLASS = "rv-invalid";
+
+    private final Map<String, Rule> rules = new LinkedHashMap<>();
+    private final List<Consumer<FormValidator>> changeListeners = new ArrayList<>();
+    private boolean showErrors;
+
+    /**
+     * Adds a rule. The rule is checked straight away and again whenever a dependency changes.
+     *
+     * @param name         A unique name for the rule.
+     * @param control      The control to highlight when the rule fails, or null.
+     * @param check        Returns the error message, or null if the rule passes.
+     * @param dependencies The properties or lists the rule reads.
+     */
+    public void addRule(String name, Node control, Supplier<String> check, Observable... dependencies) {
+        Rule rule = new Rule(control, check);
+        rules.put(name, rule);
+        InvalidationListener listener = observable -> evaluate(rule);
+        for (Observable dependency : dependencies) {
+            dependency.addListener(listener);
+        }
+        evaluate(rule);
+    }
+
+    /**
+     * Registers a listener called whenever the set of failing rules changes.
+     *
+     * @param listener The listener.
+     */
+    public void addChangeListener(Consumer<FormValidator> listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * @return True if every rule passes.
+     */
+    public boolean isValid() {
+        for (Rule rule : rules.values()) {
+            if (rule.message != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The messages of the failing rules, in the order the rules were added.
+     */
+    public List<String> getErrorMessages() {
+        List<String> messages = new ArrayList<>();
+        for (Rule rule : rules.values()) {
+            if (rule.message != null) {
+                messages.add(rule.message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * @return True if failing controls are currently highlighted.
+     */
+    public boolean isShowingErrors() {
+        return showErrors;
+    }
+
+    /**
+     * Turns highlighting of failing controls on or off. Errors are usually shown after the first
+     * save attempt, so an empty form is not covered in warnings.
+     *
+     * @param showErrors True to highlight failing controls.
+     */
+    public void setShowErrors(boolean showErrors) {
+        this.showErrors = showErrors;
+        for (Rule rule : rules.values()) {
+            updateStyle(rule);
+        }
+        fireChanged();
+    }
+
+    private void evaluate(Rule rule) {
+        String message = rule.check.get();
+        boolean changed = message == null ? rule.message != null : !message.equals(rule.message);
+        rule.message = message;
+        if (changed) {
+            updateStyle(rule);
+            fireChanged();
+        }
+    }
+
+    private void updateStyle(Rule rule) {
+        if (rule.control == null) {
+            return;
+        }
+        boolean highlighted = rule.control.getStyleClass().contains(INVALID_STYLE_CLASS);
+        boolean shouldHighlight = showErrors && rule.message != null;
+        if (shouldHighlight && !highlighted) {
+            rule.control.getStyleClass().add(INVALID_STYLE_CLASS);
+        } else if (!shouldHighlight && highlighted) {
+            rule.control.getStyleClass().remove(INVALID_STYLE_CLASS);
+        }
+    }
+
+    private void fireChanged() {
+        for (Consumer<FormValidator> listener : changeListeners) {
+            listener.accept(this);
+        }
+    }
+
+    private static class Rule {
+        private final Node control;
+        private final Supplier<String> check;
+        private String message;
+
+        Rule(Node control, Supplier<String> check) {
+            this.control = control;
+            this.check = check;
+        }
+    }
+}
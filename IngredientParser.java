@@ -0,0 +1,368 @@
+package org.example.recipevault;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * IngredientParser splits an ingredient line such as "1 1/2 cups all-purpose flour, sifted"
+ * into a quantity, a unit and the ingredient itself.
+ * Whole numbers, decimals, fractions, mixed numbers, fraction characters such as U+00BD and ranges ("2-3")
+ * are understood; a range is read as its midpoint.
+ */
+public class IngredientParser {
+
+    /** The kind of amount a unit measures. */
+    public enum Kind {
+        WEIGHT, VOLUME, COUNT
+    }
+
+    /**
+     * The units an ingredient can be measured in. Weights convert to grams and volumes to millilitres;
+     * counted items ("2 eggs", "3 cloves garlic") have no fixed size.
+     */
+    public enum Unit {
+        GRAM(Kind.WEIGHT, 1, "g", "g", "gram", "grams", "gr"),
+        KILOGRAM(Kind.WEIGHT, 1000, "kg", "kg", "kilogram", "kilograms", "kilo", "kilos"),
+        OUNCE(Kind.WEIGHT, 28.3495, "oz", "oz", "ounce", "ounces"),
+        POUND(Kind.WEIGHT, 453.592, "lb", "lb", "lbs", "pound", "pounds"),
+        STICK(Kind.WEIGHT, 113.4, "stick", "stick", "sticks"),
+        CAN(Kind.WEIGHT, 400, "can", "can", "cans", "tin", "tins"),
+        MILLILITRE(Kind.VOLUME, 1, "ml", "ml", "milliliter", "milliliters", "millilitre", "millilitres"),
+        LITRE(Kind.VOLUME, 1000, "l", "l", "liter", "liters", "litre", "litres"),
+        TEASPOON(Kind.VOLUME, 4.929, "tsp", "tsp", "tsps", "teaspoon", "teaspoons", "t"),
+        TABLESPOON(Kind.VOLUME, 14.787, "tbsp", "tbsp", "tbsps", "tbs", "tablespoon", "tablespoons", "T"),
+        FLUID_OUNCE(Kind.VOLUME, 29.574, "fl oz", "floz"),
+        CUP(Kind.VOLUME, 236.588, "cup", "cup", "cups", "c"),
+        PINT(Kind.VOLUME, 473.176, "pint", "pint", "pints", "pt"),
+        QUART(Kind.VOLUME, 946.353, "quart", "quart", "quarts", "qt"),
+        PINCH(Kind.VOLUME, 0.31, "pinch", "pinch", "pinches"),
+        DASH(Kind.VOLUME, 0.62, "dash", "dash", "dashes"),
+        PIECE(Kind.COUNT, 1, "", "piece", "pieces", "whole", "clove", "cloves", "slice", "slices",
+                "stalk", "stalks", "sprig", "sprigs", "leaf", "leaves", "fillet", "fillets");
+
+        private final Kind kind;
+        private final double factor;
+        private final String symbol;
+        private final String[] names;
+
+        Unit(Kind kind, double factor, String symbol, String... names) {
+            this.kind = kind;
+            this.factor = factor;
+            this.symbol = symbol;
+            this.names = names;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return Grams per unit for weights, millilitres per unit for volumes, 1 for counted items.
+         */
+        public double getFactor() {
+            return factor;
+        }
+
+        /**
+         * @return The short name used when printing an amount, empty for counted items.
+         */
+        public String getSymbol() {
+            return symbol;
+        }
+    }
+
+    /**
+     * A parsed ingredient line. The quantity is NaN when the line gives no amount, as in "salt to taste".
+     */
+    public static class ParsedIngredient {
+        private final double quantity;
+        private final Unit unit;
+        private final String item;
+
+        ParsedIngredient(double quantity, Unit unit, String item) {
+            this.quantity = quantity;
+            this.unit = unit;
+            this.item = item;
+        }
+
+        public double getQuantity() {
+            return quantity;
+        }
+
+        public Unit getUnit() {
+            return unit;
+        }
+
+        /**
+         * @return The ingredient in lower case, without preparation notes after a comma or in parentheses.
+         */
+        public String getItem() {
+            return item;
+        }
+
+        public boolean hasQuantity() {
+            return !Double.isNaN(quantity);
+        }
+    }
+
+    // Unit names are matched case-insensitively, except "T" (tablespoon) and "t" (teaspoon)
+    private static final Map<String, Unit> UNITS = new HashMap<>();
+
+    static {
+        for (Unit unit : Unit.values()) {
+            for (String name : unit.names) {
+                UNITS.put(name.length() == 1 && (name.equals("t") || name.equals("T")) ? name : name.toLowerCase(Locale.ROOT), unit);
+            }
+        }
+    }
+
+    private static final String[] SERVING_PHRASES = {
+            " to taste", " as needed", " as required", " for garnish", " for serving", " for frying", " optional"
+    };
+
+    private IngredientParser() {
+    }
+
+    /**
+     * Parses an ingredient line.
+     *
+     * @param line The ingredient as entered, e.g. "2 tbsp olive oil" or "3 large eggs, beaten".
+     * @return The quantity, unit and item of the line.
+     */
+    public static ParsedIngredient parse(String line) {
+        String text = stripNotes(line.trim());
+        int[] position = {0};
+
+        skipWords(text, position, "about", "approx.", "approx", "approximately", "roughly");
+        double quantity = readQuantity(text, position);
+
+        // "a cup of milk", "an onion"
+        if (Double.isNaN(quantity) && (skipWords(text, position, "a", "an"))) {
+            quantity = 1;
+        }
+
+        Unit unit = Unit.PIECE;
+        if (!Double.isNaN(quantity)) {
+            skipSpaces(text, position);
+            unit = readUnit(text, position);
+        }
+
+        skipSpaces(text, position);
+        skipWords(text, position, "of");
+        String item = stripServingPhrase(text.substring(position[0]).trim().toLowerCase(Locale.ROOT));
+        return new ParsedIngredient(quantity, unit, item);
+    }
+
+    // Drops preparation notes: "flour (sifted)" and "onion, finely chopped" both become the ingredient alone
+    private static String stripNotes(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        int depth = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+            } else if (depth == 0) {
+                if (c == ',' || c == ';') {
+                    break;
+                }
+                result.append(c);
+            }
+        }
+        return result.toString().replaceAll("\\s+", " ").trim();
+    }
+
+    // Drops a trailing "to taste", "as needed" or similar, so "salt to taste" is found as salt
+    private static String stripServingPhrase(String item) {
+        for (String phrase : SERVING_PHRASES) {
+            if (item.endsWith(phrase) && item.length() > phrase.length()) {
+                return item.substring(0, item.length() - phrase.length()).trim();
+            }
+        }
+        return item;
+    }
+
+    // Reads a number, fraction, mixed number or range, or returns NaN if the text does not start with one.
+    // Also used by DurationParser for amounts of time.
+    static double readQuantity(String text, int[] position) {
+        double first = readMixedNumber(text, position);
+        if (Double.isNaN(first)) {
+            return Double.NaN;
+        }
+
+        int mark = position[0];
+        skipSpaces(text, position);
+        if (position[0] < text.length() && isRangeSeparator(text, position)) {
+            skipSpaces(text, position);
+            double second = readMixedNumber(text, position);
+            if (!Double.isNaN(second)) {
+                return (first + second) / 2;
+            }
+        }
+        position[0] = mark;
+        return first;
+    }
+
+    private static boolean isRangeSeparator(String text, int[] position) {
+        char c = text.charAt(position[0]);
+        if (c == '-' || c == '\u2013') {
+            position[0]++;
+            return true;
+        }
+        return skipWords(text, position, "to", "or");
+    }
+
+    // Reads "1", "1.5", "1/2", "1 1/2" or a whole number followed by a single-character fraction
+    private static double readMixedNumber(String text, int[] position) {
+        double whole = readDecimal(text, position);
+        int mark = position[0];
+
+        double fraction = readUnicodeFraction(text, position);
+        if (!Double.isNaN(fraction)) {
+            return Double.isNaN(whole) ? fraction : whole + fraction;
+        }
+
+        if (!Double.isNaN(whole)) {
+            if (position[0] < text.length() && text.charAt(position[0]) == '/') {
+                position[0]++;
+                double denominator = readDecimal(text, position);
+                if (!Double.isNaN(denominator) && denominator != 0) {
+                    return whole / denominator;
+                }
+                position[0] = mark;
+                return whole;
+            }
+
+            // A fraction after a whole number: "1 1/2"
+            skipSpaces(text, position);
+            fraction = readUnicodeFraction(text, position);
+            if (!Double.isNaN(fraction)) {
+                return whole + fraction;
+            }
+            double numerator = readDecimal(text, position);
+            if (!Double.isNaN(numerator) && position[0] < text.length() && text.charAt(position[0]) == '/') {
+                position[0]++;
+                double denominator = readDecimal(text, position);
+                if (!Double.isNaN(denominator) && denominator != 0) {
+                    return whole + numerator / denominator;
+                }
+            }
+            position[0] = mark;
+            return whole;
+        }
+        return Double.NaN;
+    }
+
+    private static double readDecimal(String text, int[] position) {
+        int start = position[0];
+        int end = start;
+        boolean dot = false;
+        while (end < text.length()) {
+            char c = text.charAt(end);
+            if (c >= '0' && c <= '9') {
+                end++;
+            } else if (c == '.' && !dot && end + 1 < text.length() && Character.isDigit(text.charAt(end + 1))) {
+                dot = true;
+                end++;
+            } else {
+                break;
+            }
+        }
+        if (end == start) {
+            return Double.NaN;
+        }
+        position[0] = end;
+        return Double.parseDouble(text.substring(start, end));
+    }
+
+    private static double readUnicodeFraction(String text, int[] position) {
+        if (position[0] >= text.length()) {
+            return Double.NaN;
+        }
+        double value;
+        switch (text.charAt(position[0])) {
+            case '\u00BC': value = 0.25; break;
+            case '\u00BD': value = 0.5; break;
+            case '\u00BE': value = 0.75; break;
+            case '\u2150': value = 1.0 / 7; break;
+            case '\u2151': value = 1.0 / 9; break;
+            case '\u2152': value = 0.1; break;
+            case '\u2153': value = 1.0 / 3; break;
+            case '\u2154': value = 2.0 / 3; break;
+            case '\u2155': value = 0.2; break;
+            case '\u2156': value = 0.4; break;
+            case '\u2157': value = 0.6; break;
+            case '\u2158': value = 0.8; break;
+            case '\u2159': value = 1.0 / 6; break;
+            case '\u215A': value = 5.0 / 6; break;
+            case '\u215B': value = 0.125; break;
+            case '\u215C': value = 0.375; break;
+            case '\u215D': value = 0.625; break;
+            case '\u215E': value = 0.875; break;
+            default: return Double.NaN;
+        }
+        position[0]++;
+        return value;
+    }
+
+    // Reads a unit name such as "cups", "tbsp." or "fl oz"; counted items have no unit word
+    private static Unit readUnit(String text, int[] position) {
+        int start = position[0];
+        int end = start;
+        while (end < text.length() && Character.isLetter(text.charAt(end))) {
+            end++;
+        }
+        if (end == start) {
+            return Unit.PIECE;
+        }
+
+        String word = text.substring(start, end);
+        int next = end < text.length() && text.charAt(end) == '.' ? end + 1 : end;
+
+        if (word.equalsIgnoreCase("fl")) {
+            int[] after = {next};
+            skipSpaces(text, after);
+            if (skipWords(text, after, "oz", "oz.", "ounce", "ounces")) {
+                position[0] = after[0];
+                return Unit.FLUID_OUNCE;
+            }
+        }
+
+        Unit unit = UNITS.get(word);
+        if (unit == null) {
+            unit = UNITS.get(word.toLowerCase(Locale.ROOT));
+            if (unit != null && word.length() == 1) {
+                unit = null;
+            }
+        }
+        if (unit == null) {
+            return Unit.PIECE;
+        }
+        // "2 cloves garlic" reads "garlic" as the item; "2 leaves" alone stays counted
+        position[0] = next;
+        return unit;
+    }
+
+    private static void skipSpaces(String text, int[] position) {
+        while (position[0] < text.length() && Character.isWhitespace(text.charAt(position[0]))) {
+            position[0]++;
+        }
+    }
+
+    // Skips one of the words if the text continues with it as a whole word
+    private static boolean skipWords(String text, int[] position, String... words) {
+        skipSpaces(text, position);
+        for (String word : words) {
+            int end = position[0] + word.length();
+            if (text.regionMatches(true, position[0], word, 0, word.length())
+                    && (end == text.length() || !Character.isLetterOrDigit(text.charAt(end)))) {
+                position[0] = end;
+                skipSpaces(text, position);
+                return true;
+            }
+        }
+        return false;
+    }
+}
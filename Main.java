@@ -6,11 +6,17 @@ package org.example.recipevault;
  * This JavaFX application provides a user interface to enter recipe information.
  * Users can:
  *  - Input recipe metadata (name, category, author, time, servings, theme)
- *  - Add and remove up to 15 ingredients
- *  - Add and remove up to 25 cooking instruction steps
+ *  - Add, remove and drag-reorder up to 15 ingredients
+ *  - Add, remove and drag-reorder up to 25 cooking instruction steps
+ *  - Paste a multi-line ingredient or instruction list in one step
  *  - Enter notes or tips for the recipe
+ *  - Attach a photo of the dish, added to the PDF on its own page
+ *  - See the estimated calories, macros and cost per serving, optionally added to the PDF notes
  *  - Reset the form to clear all inputs
- *  - Receive validation alerts via pop-up dialogs
+ *  - Keep saved recipes in a local vault and get warned about near-duplicate recipes
+ *  - Plan meals from the vault and print a combined shopping list grouped by aisle
+ *  - See missing required fields highlighted as they edit, with messages in a notification bar
+ *  - See the form restyled in the colors of the selected seasonal theme
  * 
  * The application window opens centered horizontally and maximized vertically.
  * Lists for ingredients and instructions use ObservableLists linked to ListView components.
@@ -19,6 +25,8 @@ package org.example.recipevault;
  */
 
 import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
 import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -30,17 +38,24 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
+import javafx.scene.image.ImageView;
+import javafx.scene.input.Clipboard;
 import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyCodeCombination;
+import javafx.scene.input.KeyCombination;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.GridPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import javafx.scene.text.Font;
-import javafx.scene.text.FontWeight;
+import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 //Main JavaFX application class for Recipe Vault
 public class Main extends Application {
@@ -68,12 +83,18 @@ public class Main extends Application {
     private int recipeAuthorLimit = 27;
     private ComboBox<String> themeComboBox;
 
+    // Photo of the dish
+    private File imageFile;
+    private ImageView photoPreview;
+
     // Ingredients
     private TextField ingredientField;
     private Label ingredientCount;
     private int ingredientLimit = 38;
     private ListView<String> ingredientListView;
     private ObservableList<String> ingredientsList = FXCollections.observableArrayList();
+    private RecipeListEditor ingredientEditor;
+    private int maxIngredients = 15;
 
     // Instructions
     private TextField instructionField;
@@ -81,50 +102,50 @@ public class Main extends Application {
     private int instructionLimit = 77;
     private ListView<String> instructionListView;
     private ObservableList<String> instructionsList = FXCollections.observableArrayList();
+    private RecipeListEditor instructionEditor;
+    private int maxInstructions = 25;
 
     // Notes
     private TextArea notesArea;
     private Label notesCount;
     private int notesLimit = 700;
+    // About what the templates' Notes field holds, used when the template cannot be read
+    private int notesFieldCapacity = 880;
 
-    // Status label
-    private Label statusLabel;
+    // Nutrition estimate per serving, updated as ingredients and servings change
+    private Label nutritionLabel;
+    private CheckBox nutritionInNotesCheckBox;
 
-    // Color constants for styling
-    private final String CREAM_BACKGROUND = "#FFF8E1";
-    private final String BROWN_BUTTON = "#8B4513";
-    private final String BROWN_LIGHT = "#D2B48C"; 
-    private final String BROWN_DARK = "#654321"; 
-    private final String BUTTON_TEXT = "white";
-    
-    // Color object for dark brown text
-    private final javafx.scene.paint.Color DARK_BROWN_COLOR = javafx.scene.paint.Color.web(BROWN_DARK);
+    // Inline validation of the required fields and the non-blocking message bar below the form
+    private final FormValidator validator = new FormValidator();
+    private NotificationBar notificationBar;
+
+    // Recipe vault and its near-duplicate index, opened on the first save
+    private RecipeStore recipeStore;
+    private RecipeDeduplicator deduplicator;
 
     @Override
     public void start(Stage primaryStage) {
+        StartupTimer.mark("JavaFX toolkit started");
+        List<String> args = getParameters().getRaw();
+        boolean cdsTraining = args.contains("--cds-training");
+        if (args.contains("--startup-report") || cdsTraining) {
+            StartupTimer.enable();
+        }
+
         primaryStage.setTitle("Recipe Vault");
 
         BorderPane mainLayout = new BorderPane();
         mainLayout.setPadding(new Insets(10));
-        mainLayout.setStyle("-fx-background-color: " + CREAM_BACKGROUND + ";");
 
         VBox headerBox = createHeader();
         mainLayout.setTop(headerBox);
 
         // Note for character counters 
         Label characterLimitExplanation = new Label("Numbers show current text length / maximum characters allowed");
-        characterLimitExplanation.setStyle(
-            "-fx-font-family: 'Georgia';" +
-            "-fx-font-style: italic;" +
-            "-fx-font-size: 14px;" + 
-            "-fx-padding: 0 0 10 0;" +
-            "-fx-background-color: " + CREAM_BACKGROUND + ";"
-        );
-        // Set text color directly
-        characterLimitExplanation.setTextFill(DARK_BROWN_COLOR);
+        characterLimitExplanation.getStyleClass().add("rv-note");
         
         VBox contentWithNote = new VBox(10);
-        contentWithNote.setStyle("-fx-background-color: " + CREAM_BACKGROUND + ";");
         contentWithNote.getChildren().add(characterLimitExplanation);
         
         GridPane contentGrid = createContentGrid();
@@ -132,13 +153,27 @@ public class Main extends Application {
         mainLayout.setCenter(contentWithNote);
 
         HBox buttonBox = createButtons(primaryStage);
-        mainLayout.setBottom(buttonBox);
+        notificationBar = new NotificationBar();
+        mainLayout.setBottom(new VBox(10, notificationBar, buttonBox));
+        setupValidation();
 
         Scene scene = new Scene(mainLayout, 800, javafx.stage.Screen.getPrimary().getVisualBounds().getHeight());
-        scene.getRoot().setStyle("-fx-font-family: 'Georgia';");
+        ThemeManager.apply(scene);
         
+        StartupTimer.mark("Details form built");
+
         primaryStage.centerOnScreen();
-        primaryStage.setOnShown(e -> primaryStage.setX((javafx.stage.Screen.getPrimary().getVisualBounds().getWidth() - primaryStage.getWidth()) / 2));
+        primaryStage.setOnShown(e -> {
+            primaryStage.setX((javafx.stage.Screen.getPrimary().getVisualBounds().getWidth() - primaryStage.getWidth()) / 2);
+            StartupTimer.mark("Window shown");
+
+            // Build the rest of the form on the next pulse, then warm up PDF export in the background
+            Platform.runLater(() -> {
+                addListAndNotesRows(contentGrid, contentGrid.getRowCount() - 1);
+                StartupTimer.mark("Lists and notes built");
+                startBackgroundPreload(cdsTraining);
+            });
+        });
         primaryStage.setY(0);
         primaryStage.setScene(scene);
         primaryStage.setHeight(javafx.stage.Screen.getPrimary().getVisualBounds().getHeight());
@@ -146,48 +181,53 @@ public class Main extends Application {
         primaryStage.show();
     }
 
+    // Loads PDFBox and the default template on a background thread so the first save does not wait for them.
+    // In CDS training mode the application exits once everything is loaded, see build-appcds.sh.
+    private void startBackgroundPreload(boolean exitWhenDone) {
+        Thread preloadThread = new Thread(() -> {
+            RecipePDFWriter.preload("Spring");
+            NutritionTable.getDefault();
+            StartupTimer.mark("PDF export preloaded");
+            StartupTimer.report();
+            if (exitWhenDone) {
+                Platform.exit();
+            }
+        }, "recipe-preload");
+        preloadThread.setDaemon(true);
+        preloadThread.setPriority(Thread.MIN_PRIORITY);
+        preloadThread.start();
+    }
+
     // Creates the top header section with title and slogan
     private VBox createHeader() {
         VBox headerBox = new VBox(10);
         headerBox.setAlignment(Pos.CENTER);
         headerBox.setPadding(new Insets(0, 0, 20, 0));
-        headerBox.setStyle("-fx-background-color: " + CREAM_BACKGROUND + ";");
 
         Label titleLabel = new Label("Recipe Vault");
-        titleLabel.setFont(Font.font("Georgia", FontWeight.BOLD, 24));
-        titleLabel.setTextFill(DARK_BROWN_COLOR);  // Set dark brown color
+        titleLabel.getStyleClass().add("rv-title");
 
         Label sloganLabel = new Label("Preserve the past, cook for the future!");
-        sloganLabel.setFont(Font.font("Georgia", FontWeight.NORMAL, 14));
-        sloganLabel.setTextFill(DARK_BROWN_COLOR);  // Set dark brown color
+        sloganLabel.getStyleClass().add("rv-slogan");
 
         headerBox.getChildren().addAll(titleLabel, sloganLabel);
         return headerBox;
     }
 
-    // Creates the main content area including form fields, ingredient and instruction lists
+    // Creates the main content area with the recipe detail fields
     private GridPane createContentGrid() {
         GridPane grid = new GridPane();
         grid.setHgap(10);
         grid.setVgap(10);
         grid.setPadding(new Insets(10));
-        grid.setStyle("-fx-background-color: " + CREAM_BACKGROUND + ";");
 
         int row = 0;
 
-        String labelStyle = "-fx-font-family: 'Georgia'; -fx-font-size: 14px;";
-        
-        String textFieldStyle = "-fx-font-family: 'Georgia'; -fx-font-size: 14px;";
-
         Label recipeNameLabel = new Label("Recipe Name:");
-        recipeNameLabel.setStyle(labelStyle);
-        recipeNameLabel.setTextFill(DARK_BROWN_COLOR);
+        recipeNameLabel.getStyleClass().add("rv-label");
         grid.add(recipeNameLabel, 0, row);
         
         recipeNameField = new TextField();
-        recipeNameField.setStyle(textFieldStyle);
-
-        recipeNameField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
         
         HBox recipeNameBox = new HBox(10);
 
@@ -200,8 +240,6 @@ public class Main extends Application {
         }));
 
         recipeNameCount = new Label("0/" + recipeNameLimit);
-        recipeNameCount.setStyle(labelStyle);
-        recipeNameCount.setTextFill(DARK_BROWN_COLOR);
         recipeNameBox.getChildren().addAll(recipeNameField, recipeNameCount);
         grid.add(recipeNameBox, 1, row);
 
@@ -210,17 +248,12 @@ public class Main extends Application {
 
         row++;
         Label categoryLabel = new Label("Cuisine:");
-        categoryLabel.setStyle(labelStyle);
-        categoryLabel.setTextFill(DARK_BROWN_COLOR);
+        categoryLabel.getStyleClass().add("rv-label");
         grid.add(categoryLabel, 0, row);
         
         recipeCategoryField = new TextField();
-        recipeCategoryField.setStyle(textFieldStyle);
-        recipeCategoryField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
         
         recipeCategoryCount = new Label("0/" + recipeCategoryLimit);
-        recipeCategoryCount.setStyle(labelStyle);
-        recipeCategoryCount.setTextFill(DARK_BROWN_COLOR);
 
         // Use helper method for category count
         setupCharacterCounter(recipeCategoryCount, recipeCategoryField.textProperty(), recipeCategoryLimit);
@@ -238,17 +271,12 @@ public class Main extends Application {
 
         row++;
         Label authorLabel = new Label("Recipe Author:");
-        authorLabel.setStyle(labelStyle);
-        authorLabel.setTextFill(DARK_BROWN_COLOR);
+        authorLabel.getStyleClass().add("rv-label");
         grid.add(authorLabel, 0, row);
         
         recipeAuthorCount = new Label("0/" + recipeAuthorLimit);
-        recipeAuthorCount.setStyle(labelStyle);
-        recipeAuthorCount.setTextFill(DARK_BROWN_COLOR);
         
         recipeAuthorField = new TextField();
-        recipeAuthorField.setStyle(textFieldStyle);
-        recipeAuthorField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
 
         // Use helper method for author count
         setupCharacterCounter(recipeAuthorCount, recipeAuthorField.textProperty(), recipeAuthorLimit);
@@ -266,17 +294,12 @@ public class Main extends Application {
 
         row++;
         Label prepTimeLabel = new Label("Prep Time:");
-        prepTimeLabel.setStyle(labelStyle);
-        prepTimeLabel.setTextFill(DARK_BROWN_COLOR);
+        prepTimeLabel.getStyleClass().add("rv-label");
         grid.add(prepTimeLabel, 0, row);
         
         prepTimeCount = new Label("0/" + prepTimeLimit);
-        prepTimeCount.setStyle(labelStyle);
-        prepTimeCount.setTextFill(DARK_BROWN_COLOR);
         
         prepTimeField = new TextField();
-        prepTimeField.setStyle(textFieldStyle);
-        prepTimeField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
 
         // Use helper method for prep time count
         setupCharacterCounter(prepTimeCount, prepTimeField.textProperty(), prepTimeLimit);
@@ -294,17 +317,12 @@ public class Main extends Application {
 
         row++;
         Label cookTimeLabel = new Label("Cook Time:");
-        cookTimeLabel.setStyle(labelStyle);
-        cookTimeLabel.setTextFill(DARK_BROWN_COLOR);
+        cookTimeLabel.getStyleClass().add("rv-label");
         grid.add(cookTimeLabel, 0, row);
         
         cookTimeCount = new Label("0/" + cookTimeLimit);
-        cookTimeCount.setStyle(labelStyle);
-        cookTimeCount.setTextFill(DARK_BROWN_COLOR);
         
         cookTimeField = new TextField();
-        cookTimeField.setStyle(textFieldStyle);
-        cookTimeField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
 
         // Use helper method for cook time count
         setupCharacterCounter(cookTimeCount, cookTimeField.textProperty(), cookTimeLimit);
@@ -322,17 +340,12 @@ public class Main extends Application {
 
         row++;
         Label totalTimeLabel = new Label("Total Time:");
-        totalTimeLabel.setStyle(labelStyle);
-        totalTimeLabel.setTextFill(DARK_BROWN_COLOR);
+        totalTimeLabel.getStyleClass().add("rv-label");
         grid.add(totalTimeLabel, 0, row);
         
         totalTimeCount = new Label("0/" + totalTimeLimit);
-        totalTimeCount.setStyle(labelStyle);
-        totalTimeCount.setTextFill(DARK_BROWN_COLOR);
         
         totalTimeField = new TextField();
-        totalTimeField.setStyle(textFieldStyle);
-        totalTimeField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
 
         // Use helper method for total time count
         setupCharacterCounter(totalTimeCount, totalTimeField.textProperty(), totalTimeLimit);
@@ -350,17 +363,12 @@ public class Main extends Application {
 
         row++;
         Label servingsLabel = new Label("Servings:");
-        servingsLabel.setStyle(labelStyle);
-        servingsLabel.setTextFill(DARK_BROWN_COLOR);
+        servingsLabel.getStyleClass().add("rv-label");
         grid.add(servingsLabel, 0, row);
         
         servingsCount = new Label("0/" + servingsLimit);
-        servingsCount.setStyle(labelStyle);
-        servingsCount.setTextFill(DARK_BROWN_COLOR);
         
         servingsField = new TextField();
-        servingsField.setStyle(textFieldStyle);
-        servingsField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
 
         // Use helper method for servings count
         setupCharacterCounter(servingsCount, servingsField.textProperty(), servingsLimit);
@@ -378,8 +386,7 @@ public class Main extends Application {
 
         row++;
         Label themeLabel = new Label("Theme:");
-        themeLabel.setStyle(labelStyle);
-        themeLabel.setTextFill(DARK_BROWN_COLOR);
+        themeLabel.getStyleClass().add("rv-label");
         grid.add(themeLabel, 0, row);
         
         themeComboBox = new ComboBox<>(FXCollections.observableArrayList(
@@ -387,16 +394,9 @@ public class Main extends Application {
         ));
         themeComboBox.setPromptText("Select theme");
         themeComboBox.setEditable(false);
-        themeComboBox.setStyle(
-            "-fx-font-family: 'Georgia';" + 
-            "-fx-font-size: 14px;" +
-            "-fx-background-color: " + BROWN_BUTTON + ";" +
-            "-fx-text-fill: white;" +
-            "-fx-mark-color: white;" + 
-            "-fx-prompt-text-fill: white;" 
-        );
-        
-        // Forces text to be white for selected items
+        themeComboBox.getStyleClass().add("rv-theme-picker");
+
+        // Shows the prompt again after the selection is cleared
         themeComboBox.setButtonCell(new ListCell<String>() {
             @Override
             protected void updateItem(String item, boolean empty) {
@@ -406,49 +406,59 @@ public class Main extends Application {
                 } else {
                     setText(item);
                 }
-                setTextFill(javafx.scene.paint.Color.WHITE);
-            }
-        });
-        
-        // Makes popup list items dark brown
-        themeComboBox.setCellFactory(listView -> new ListCell<String>() {
-            @Override
-            protected void updateItem(String item, boolean empty) {
-                super.updateItem(item, empty);
-                if (empty || item == null) {
-                    setText(null);
-                } else {
-                    setText(item);
-                }
-                setTextFill(DARK_BROWN_COLOR);
             }
         });
+
+        // Restyle the whole UI in the palette of the selected PDF theme
+        themeComboBox.valueProperty().addListener((obs, oldTheme, newTheme) -> ThemeManager.setTheme(newTheme));
         
         grid.add(themeComboBox, 1, row);
 
+        row++;
+        Label photoLabel = new Label("Photo:");
+        photoLabel.getStyleClass().add("rv-label");
+        grid.add(photoLabel, 0, row);
+
+        Button attachPhotoButton = new Button("Attach Photo");
+        attachPhotoButton.getStyleClass().add("rv-button");
+        attachPhotoButton.setOnAction(e -> attachPhoto());
+
+        Button removePhotoButton = new Button("Remove Photo");
+        removePhotoButton.getStyleClass().add("rv-button");
+        removePhotoButton.setOnAction(e -> removePhoto());
+
+        photoPreview = new ImageView();
+        photoPreview.setFitWidth(RecipeImageLoader.THUMBNAIL_SIZE);
+        photoPreview.setFitHeight(RecipeImageLoader.THUMBNAIL_SIZE);
+        photoPreview.setPreserveRatio(true);
+
+        HBox photoBox = new HBox(10, attachPhotoButton, removePhotoButton, photoPreview);
+        photoBox.setAlignment(Pos.CENTER_LEFT);
+        grid.add(photoBox, 1, row);
+
+        return grid;
+    }
+
+    // Adds the ingredient, instruction and notes sections below the recipe details.
+    // They are built right after the window is first shown, so the details form appears sooner.
+    private void addListAndNotesRows(GridPane grid, int row) {
         row++;
         Separator separator1 = new Separator();
         grid.add(separator1, 0, row, 2, 1);
 
         row++;
         Label ingredientsHeaderLabel = new Label("Ingredients");
-        ingredientsHeaderLabel.setStyle(labelStyle + "-fx-font-weight: bold; -fx-font-size: 16px;");
-        ingredientsHeaderLabel.setTextFill(DARK_BROWN_COLOR);
+        ingredientsHeaderLabel.getStyleClass().add("rv-section-header");
         grid.add(ingredientsHeaderLabel, 0, row, 2, 1);
 
         row++;
         Label addIngredientLabel = new Label("Add Ingredient:");
-        addIngredientLabel.setStyle(labelStyle);
-        addIngredientLabel.setTextFill(DARK_BROWN_COLOR);
+        addIngredientLabel.getStyleClass().add("rv-label");
         grid.add(addIngredientLabel, 0, row);
         
         ingredientCount = new Label("0/" + ingredientLimit);
-        ingredientCount.setStyle(labelStyle);
-        ingredientCount.setTextFill(DARK_BROWN_COLOR);
         
         ingredientField = new TextField();
-        ingredientField.setStyle(textFieldStyle);
-        ingredientField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
 
         // Use helper method for ingredient count
         setupCharacterCounter(ingredientCount, ingredientField.textProperty(), ingredientLimit);
@@ -462,7 +472,7 @@ public class Main extends Application {
         }));
 
         Button addIngredientButton = new Button("Add");
-        addIngredientButton.setStyle("-fx-background-color: " + BROWN_BUTTON + "; -fx-text-fill: " + BUTTON_TEXT + "; -fx-font-family: 'Georgia'; -fx-font-size: 14px;");
+        addIngredientButton.getStyleClass().add("rv-button");
         addIngredientButton.setOnAction(e -> addIngredient());
         HBox ingredientBox = new HBox(10, ingredientField, addIngredientButton);
         grid.add(ingredientBox, 1, row);
@@ -471,34 +481,31 @@ public class Main extends Application {
         // Add support for pressing Enter in ingredientField
         ingredientField.setOnKeyPressed(event -> {
             if (event.getCode() == KeyCode.ENTER) {
-                String ingredient = ingredientField.getText();
-                if ((!ingredient.isEmpty() && (ingredientsList.size() < 15))) {
-                    ingredientsList.add(ingredient);
-                    ingredientField.clear();
-                }
-                else if (ingredientsList.size() >= 15) {
-                    showMessageDialog("You can only add up to 15 ingredients.");
-                }
+                addIngredient();
             }
         });
 
         row++;
         Label ingredientListLabel = new Label("Ingredient List:");
-        ingredientListLabel.setStyle(labelStyle);
-        ingredientListLabel.setTextFill(DARK_BROWN_COLOR);
+        ingredientListLabel.getStyleClass().add("rv-label");
         grid.add(ingredientListLabel, 0, row);
         
-        ingredientListView = new ListView<>(ingredientsList);
+        ingredientEditor = new RecipeListEditor(ingredientsList, maxIngredients, ingredientLimit);
+        ingredientListView = ingredientEditor.getListView();
         ingredientListView.setPrefHeight(400);
-        ingredientListView.setStyle("-fx-font-family: 'Georgia'; -fx-font-size: 14px;");
+        setupPasteShortcut(ingredientListView, this::pasteIngredients);
 
         grid.add(ingredientListView, 1, row);
 
         row++;
         Button removeIngredientButton = new Button("Remove Selected Ingredient");
-        removeIngredientButton.setStyle("-fx-background-color: " + BROWN_BUTTON + "; -fx-text-fill: " + BUTTON_TEXT + "; -fx-font-family: 'Georgia'; -fx-font-size: 14px;");
+        removeIngredientButton.getStyleClass().add("rv-button");
         removeIngredientButton.setOnAction(e -> removeIngredient());
-        grid.add(removeIngredientButton, 1, row);
+
+        Button pasteIngredientsButton = new Button("Paste Ingredient List");
+        pasteIngredientsButton.getStyleClass().add("rv-button");
+        pasteIngredientsButton.setOnAction(e -> pasteIngredients());
+        grid.add(new HBox(10, removeIngredientButton, pasteIngredientsButton), 1, row);
 
         row++;
         Separator separator2 = new Separator();
@@ -506,23 +513,17 @@ public class Main extends Application {
 
         row++;
         Label instructionsHeaderLabel = new Label("Cooking Instructions");
-        instructionsHeaderLabel.setStyle(labelStyle + "-fx-font-weight: bold; -fx-font-size: 16px;");
-        instructionsHeaderLabel.setTextFill(DARK_BROWN_COLOR);
+        instructionsHeaderLabel.getStyleClass().add("rv-section-header");
         grid.add(instructionsHeaderLabel, 0, row, 2, 1);
 
         row++;
         Label addInstructionLabel = new Label("Add Instruction:");
-        addInstructionLabel.setStyle(labelStyle);
-        addInstructionLabel.setTextFill(DARK_BROWN_COLOR);
+        addInstructionLabel.getStyleClass().add("rv-label");
         grid.add(addInstructionLabel, 0, row);
         
         instructionField = new TextField();
-        instructionField.setStyle(textFieldStyle);
-        instructionField.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
         
         instructionCount = new Label("0/" + instructionLimit);
-        instructionCount.setStyle(labelStyle);
-        instructionCount.setTextFill(DARK_BROWN_COLOR);
 
         // Use helper method for instruction count
         setupCharacterCounter(instructionCount, instructionField.textProperty(), instructionLimit);
@@ -540,24 +541,13 @@ public class Main extends Application {
         });
         
         Button addInstructionButton = new Button("Add");
-        addInstructionButton.setStyle("-fx-background-color: " + BROWN_BUTTON + "; -fx-text-fill: " + BUTTON_TEXT + "; -fx-font-family: 'Georgia'; -fx-font-size: 14px;");
-        addInstructionButton.setOnAction(e -> {
-            addInstruction();
-            statusLabel = new Label("");
-            GridPane.setRowIndex(statusLabel, GridPane.getRowIndex(instructionListView) - 1);
-        });
+        addInstructionButton.getStyleClass().add("rv-button");
+        addInstructionButton.setOnAction(e -> addInstruction());
 
         // Add support for pressing Enter in instructionField
         instructionField.setOnKeyPressed(event -> {
             if (event.getCode() == KeyCode.ENTER) {
-                String step = instructionField.getText();
-                if (!step.isEmpty() && (instructionsList.size() < 25)) {
-                    instructionsList.add(step);
-                    instructionField.clear();
-                }
-                else if(instructionsList.size() >= 25) {
-                    showMessageDialog("You can only add up to 25 steps.");
-                }
+                addInstruction();
             }
         });
 
@@ -567,20 +557,29 @@ public class Main extends Application {
 
         row++;
         Label instructionListLabel = new Label("Instruction List:");
-        instructionListLabel.setStyle(labelStyle);
-        instructionListLabel.setTextFill(DARK_BROWN_COLOR);
+        instructionListLabel.getStyleClass().add("rv-label");
         grid.add(instructionListLabel, 0, row);
         
-        instructionListView = new ListView<>(instructionsList);
+        instructionEditor = new RecipeListEditor(instructionsList, maxInstructions, instructionLimit);
+        instructionListView = instructionEditor.getListView();
         instructionListView.setPrefHeight(400);
-        instructionListView.setStyle("-fx-font-family: 'Georgia'; -fx-font-size: 14px;");
+        setupPasteShortcut(instructionListView, this::pasteInstructions);
         grid.add(instructionListView, 1, row);
 
+        validator.addRule("ingredients", ingredientListView,
+                () -> ingredientsList.isEmpty() ? "Ingredients List" : null, ingredientsList);
+        validator.addRule("instructions", instructionListView,
+                () -> instructionsList.isEmpty() ? "Cooking Instructions" : null, instructionsList);
+
         row++;
         Button removeInstructionButton = new Button("Remove Selected Instruction");
-        removeInstructionButton.setStyle("-fx-background-color: " + BROWN_BUTTON + "; -fx-text-fill: " + BUTTON_TEXT + "; -fx-font-family: 'Georgia'; -fx-font-size: 14px;");
+        removeInstructionButton.getStyleClass().add("rv-button");
         removeInstructionButton.setOnAction(e -> removeInstruction());
-        grid.add(removeInstructionButton, 1, row);
+
+        Button pasteInstructionsButton = new Button("Paste Instruction List");
+        pasteInstructionsButton.getStyleClass().add("rv-button");
+        pasteInstructionsButton.setOnAction(e -> pasteInstructions());
+        grid.add(new HBox(10, removeInstructionButton, pasteInstructionsButton), 1, row);
 
         row++;
         Separator separator3 = new Separator();
@@ -588,18 +587,13 @@ public class Main extends Application {
 
         row++;
         Label notesHeaderLabel = new Label("Notes/Tips");
-        notesHeaderLabel.setStyle(labelStyle + "-fx-font-weight: bold; -fx-font-size: 16px;");
-        notesHeaderLabel.setTextFill(DARK_BROWN_COLOR);
+        notesHeaderLabel.getStyleClass().add("rv-section-header");
         grid.add(notesHeaderLabel, 0, row, 2, 1);
 
         row++;
         notesArea = new TextArea();
-        notesArea.setStyle("-fx-font-family: 'Georgia'; -fx-font-size: 14px;");
-        notesArea.setStyle("-fx-text-fill: " + BROWN_DARK + ";");
         
         notesCount = new Label("0/" + notesLimit);
-        notesCount.setStyle(labelStyle);
-        notesCount.setTextFill(DARK_BROWN_COLOR);
         notesArea.setPrefHeight(400);
 
         // Use helper method for notes count
@@ -616,7 +610,36 @@ public class Main extends Application {
         grid.add(notesArea, 1, row);
         grid.add(notesCount, 2, row);
 
-        return grid;
+        row++;
+        Label nutritionHeaderLabel = new Label("Nutrition (estimated)");
+        nutritionHeaderLabel.getStyleClass().add("rv-section-header");
+        grid.add(nutritionHeaderLabel, 0, row, 2, 1);
+
+        row++;
+        nutritionLabel = new Label();
+        nutritionLabel.getStyleClass().add("rv-label");
+        nutritionLabel.setWrapText(true);
+        nutritionInNotesCheckBox = new CheckBox("Add to the PDF notes");
+        nutritionInNotesCheckBox.getStyleClass().add("rv-label");
+        grid.add(new VBox(5, nutritionLabel, nutritionInNotesCheckBox), 1, row);
+
+        ingredientsList.addListener((InvalidationListener) obs -> updateNutrition());
+        servingsField.textProperty().addListener(obs -> updateNutrition());
+        updateNutrition();
+    }
+
+    // Recomputes the nutrition estimate shown below the notes
+    private void updateNutrition() {
+        if (ingredientsList.isEmpty()) {
+            nutritionLabel.setText("Add ingredients with amounts, e.g. \"2 cups flour\", to see an estimate.");
+            return;
+        }
+        NutritionEstimator.Estimate estimate = NutritionEstimator.getDefault().estimate(ingredientsList, servingsField.getText());
+        String text = estimate.summary();
+        if (!estimate.getUnmatched().isEmpty()) {
+            text += "\nNot counted: " + String.join("; ", estimate.getUnmatched());
+        }
+        nutritionLabel.setText(text);
     }
 
     // Creates the bottom row of buttons (Save, Reset, Close)
@@ -624,16 +647,9 @@ public class Main extends Application {
         HBox box = new HBox(10);
         box.setAlignment(Pos.CENTER_RIGHT);
         box.setPadding(new Insets(20, 0, 0, 0));
-        box.setStyle("-fx-background-color: " + CREAM_BACKGROUND + ";");
-
-        String buttonStyle = "-fx-background-color: " + BROWN_BUTTON + "; " +
-                            "-fx-text-fill: " + BUTTON_TEXT + "; " +
-                            "-fx-font-family: 'Georgia'; " +
-                            "-fx-font-size: 14px; " +
-                            "-fx-padding: 5 15 5 15;";
 
         Button save = new Button("Save");
-        save.setStyle(buttonStyle);
+        save.getStyleClass().addAll("rv-button", "rv-footer-button");
 
         //Save user input to pdf if all fields are field or selected besides notes
         save.setOnAction(e -> {
@@ -644,52 +660,103 @@ public class Main extends Application {
         });
         
         Button reset = new Button("Reset");
-        reset.setStyle(buttonStyle);
+        reset.getStyleClass().addAll("rv-button", "rv-footer-button");
         reset.setOnAction(e -> resetForm());
         
         Button close = new Button("Close");
-        close.setStyle(buttonStyle);
+        close.getStyleClass().addAll("rv-button", "rv-footer-button");
         close.setOnAction(e -> stage.close());
         
-        box.getChildren().addAll(save, reset, close);
+        Button shoppingList = new Button("Shopping List");
+        shoppingList.getStyleClass().addAll("rv-button", "rv-footer-button");
+        shoppingList.setOnAction(e -> createShoppingList(stage));
+
+        box.getChildren().addAll(shoppingList, save, reset, close);
         return box;
     }
 
-    // Validates if all required fields are filled
-    private boolean validateFields() {
-        List<String> emptyFields = new ArrayList<>();
-        if (recipeNameField.getText().trim().isEmpty()) {
-            emptyFields.add("Recipe Name");
-        }
-        if (recipeCategoryField.getText().trim().isEmpty()) {
-            emptyFields.add("Category/Cuisine");
-        }
-        if (recipeAuthorField.getText().trim().isEmpty()) {
-            emptyFields.add("Recipe Author");
-        }
-        if (prepTimeField.getText().trim().isEmpty()) {
-            emptyFields.add("Prep Time");
-        }
-        if (cookTimeField.getText().trim().isEmpty()) {
-            emptyFields.add("Cook Time");
-        }
-        if (totalTimeField.getText().trim().isEmpty()) {
-            emptyFields.add("Total Time");
-        }
-        if (servingsField.getText().trim().isEmpty()) {
-            emptyFields.add("Servings");
-        }
-        if (themeComboBox.getValue() == null) {
-            emptyFields.add("Theme");
+    // Registers a required-field rule for each recipe detail.
+    // Each rule is re-checked only when its own field changes, so typing stays cheap.
+    private void setupValidation() {
+        requireText("name", recipeNameField, "Recipe Name");
+        requireText("category", recipeCategoryField, "Category/Cuisine");
+        requireText("author", recipeAuthorField, "Recipe Author");
+        requireDuration("prepTime", prepTimeField, "Prep Time");
+        requireDuration("cookTime", cookTimeField, "Cook Time");
+        validator.addRule("totalTime", totalTimeField, this::checkTotalTime,
+                prepTimeField.textProperty(), cookTimeField.textProperty(), totalTimeField.textProperty());
+        setupTotalTimeAutoFill();
+        requireText("servings", servingsField, "Servings");
+        validator.addRule("theme", themeComboBox,
+                () -> themeComboBox.getValue() == null ? "Theme" : null, themeComboBox.valueProperty());
+
+        // Once the user has tried to save, keep the status line in step with what is still missing
+        validator.addChangeListener(v -> {
+            if (!v.isShowingErrors()) {
+                return;
+            }
+            List<String> problems = v.getErrorMessages();
+            notificationBar.setStatus(problems.isEmpty() ? "All required fields are filled in."
+                    : problems.size() + " field(s) to fill in or fix: " + String.join(", ", problems));
+        });
+    }
+
+    // Adds a rule that fails while the text field is blank
+    private void requireText(String name, TextField field, String displayName) {
+        validator.addRule(name, field, () -> field.getText().trim().isEmpty() ? displayName : null, field.textProperty());
+    }
+
+    // Adds a rule that fails while the text field is blank or not a time such as "20 min" or "1h 20m"
+    private void requireDuration(String name, TextField field, String displayName) {
+        validator.addRule(name, field, () -> {
+            if (field.getText().trim().isEmpty()) {
+                return displayName;
+            }
+            return DurationParser.parseMinutes(field.getText()) == DurationParser.UNKNOWN
+                    ? displayName + " (use e.g. 20 min or 1h 20m)" : null;
+        }, field.textProperty());
+    }
+
+    // The total time must be a time, and at least prep plus cook; it may be longer to allow for resting
+    private String checkTotalTime() {
+        String text = totalTimeField.getText();
+        if (text.trim().isEmpty()) {
+            return "Total Time";
         }
-        if (ingredientsList.isEmpty()) {
-            emptyFields.add("Ingredients List");
+        int total = DurationParser.parseMinutes(text);
+        if (total == DurationParser.UNKNOWN) {
+            return "Total Time (use e.g. 45 min or 1h 20m)";
         }
-        if (instructionsList.isEmpty()) {
-            emptyFields.add("Cooking Instructions");
+        int prep = DurationParser.parseMinutes(prepTimeField.getText());
+        int cook = DurationParser.parseMinutes(cookTimeField.getText());
+        if (prep >= 0 && cook >= 0 && total < prep + cook) {
+            return "Total Time (less than prep + cook, " + DurationParser.format(prep + cook) + ")";
         }
-        if (!emptyFields.isEmpty()) {
-            showMessageDialog("The following fields cannot be empty: " + String.join(", ", emptyFields));
+        return null;
+    }
+
+    // Fills in the total time as prep plus cook, unless the user typed a total of their own
+    private void setupTotalTimeAutoFill() {
+        String[] autoTotal = {""};
+        InvalidationListener update = obs -> {
+            String current = totalTimeField.getText();
+            if (!current.isEmpty() && !current.equals(autoTotal[0])) {
+                return;
+            }
+            int prep = DurationParser.parseMinutes(prepTimeField.getText());
+            int cook = DurationParser.parseMinutes(cookTimeField.getText());
+            autoTotal[0] = prep >= 0 && cook >= 0 ? DurationParser.format(prep + cook) : "";
+            totalTimeField.setText(autoTotal[0]);
+        };
+        prepTimeField.textProperty().addListener(update);
+        cookTimeField.textProperty().addListener(update);
+    }
+
+    // Validates if all required fields are filled, highlighting the ones that are not
+    private boolean validateFields() {
+        validator.setShowErrors(true);
+        if (!validator.isValid()) {
+            notificationBar.error("Please fill in or fix: " + String.join(", ", validator.getErrorMessages()));
             return false;
         }
 
@@ -699,84 +766,126 @@ public class Main extends Application {
     // Adds an ingredient to the list if valid and under limit
     private void addIngredient() {
         String ingredient = ingredientField.getText().trim();
-        if (ingredientsList.size() >= 15) {
-            showMessageDialog("You can only add up to 15 ingredients.");
+        if (ingredientEditor.isFull()) {
+            notificationBar.warn("You can only add up to " + maxIngredients + " ingredients.");
             return;
         }
-        if (!ingredient.isEmpty() && !ingredientsList.contains(ingredient)) {
-            ingredientsList.add(ingredient);
+        if (ingredientEditor.add(ingredient)) {
             ingredientField.clear();
         } else {
-            showMessageDialog("Ingredient already in the list or empty");
+            notificationBar.warn("Ingredient already in the list or empty");
         }
-        statusLabel = new Label("Ingredient already in the list or empty");
-        statusLabel.setStyle("-fx-font-family: 'Georgia';");
-        statusLabel.setTextFill(DARK_BROWN_COLOR);
     }
 
     // Removes the selected ingredient from the list
     private void removeIngredient() {
-        String selected = ingredientListView.getSelectionModel().getSelectedItem();
+        String selected = ingredientEditor.removeSelected();
         if (selected != null) {
-            ingredientsList.remove(selected);
-            showMessageDialog("Ingredient '" + selected + "' removed");
+            notificationBar.info("Ingredient '" + selected + "' removed");
         } else {
-            showMessageDialog("Select an ingredient to remove");
+            notificationBar.warn("Select an ingredient to remove");
         }
     }
 
     // Adds an instruction step to the list if valid and under limit
     private void addInstruction() {
         String step = instructionField.getText().trim();
-        if (instructionsList.size() >= 25) {
-            showMessageDialog("You can only add up to 25 instruction steps.");
+        if (instructionEditor.isFull()) {
+            notificationBar.warn("You can only add up to " + maxInstructions + " instruction steps.");
             return;
         }
-        if (!step.isEmpty() && !instructionsList.contains(step)) {
-            instructionsList.add(step);
+        if (instructionEditor.add(step)) {
             instructionField.clear();
         } else {
-            showMessageDialog("Instruction already in the list or empty");
+            notificationBar.warn("Instruction already in the list or empty");
         }
-        statusLabel = new Label("Instruction already in the list or empty");
-        statusLabel.setStyle("-fx-font-family: 'Georgia';");
-        statusLabel.setTextFill(DARK_BROWN_COLOR);
     }
 
     // Removes the selected instruction from the list
     private void removeInstruction() {
-        String selected = instructionListView.getSelectionModel().getSelectedItem();
+        String selected = instructionEditor.removeSelected();
         if (selected != null) {
-            instructionsList.remove(selected);
-            showMessageDialog("Instruction removed");
+            notificationBar.info("Instruction removed");
         } else {
-            showMessageDialog("Select an instruction to remove");
+            notificationBar.warn("Select an instruction to remove");
         }
     }
 
-    // Shows a popup dialog with a given message
-    private void showMessageDialog(String message) {
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Recipe Vault");
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        
-        // Apply styling to the dialog
-        DialogPane dialogPane = alert.getDialogPane();
-        dialogPane.setStyle("-fx-background-color: " + CREAM_BACKGROUND + "; -fx-font-family: 'Georgia';");
-        
-        // Style the content text with dark brown
-        Label contentLabel = (Label) dialogPane.lookup(".content.label");
-        if (contentLabel != null) {
-            contentLabel.setTextFill(DARK_BROWN_COLOR);
+    // Lets the user pick a photo of the dish, decoded in the background for the preview and the PDF
+    private void attachPhoto() {
+        FileChooser photoChooser = new FileChooser();
+        photoChooser.setTitle("Attach Photo");
+        photoChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Images", "*.jpg", "*.jpeg", "*.png", "*.gif", "*.bmp"));
+        File file = photoChooser.showOpenDialog(photoPreview.getScene().getWindow());
+        if (file == null) {
+            return;
         }
-        
-        // Find all buttons in the dialog and style them
-        dialogPane.lookupAll(".button").forEach(node -> {
-            ((Button) node).setStyle("-fx-background-color: " + BROWN_BUTTON + "; -fx-text-fill: " + BUTTON_TEXT + "; -fx-font-family: 'Georgia'; -fx-font-size: 14px;");
+
+        imageFile = file;
+        photoPreview.setImage(null);
+        RecipeImageLoader.loadThumbnail(file, thumbnail -> {
+            // Ignore thumbnails of a photo that was replaced while it was loading
+            if (file != imageFile) {
+                return;
+            }
+            if (thumbnail == null) {
+                imageFile = null;
+                notificationBar.error("Could not read the photo '" + file.getName() + "'");
+            } else {
+                photoPreview.setImage(thumbnail);
+            }
         });
-        
-        alert.showAndWait();
+        // Start preparing the print copy now so saving does not wait for it
+        RecipeImageLoader.preparePrintImage(file);
+    }
+
+    // Removes the attached photo
+    private void removePhoto() {
+        imageFile = null;
+        photoPreview.setImage(null);
+    }
+
+    // Adds every line of the clipboard text to the ingredient list in one batch
+    private void pasteIngredients() {
+        pasteLines(ingredientEditor, "ingredient");
+    }
+
+    // Adds every line of the clipboard text to the instruction list in one batch
+    private void pasteInstructions() {
+        pasteLines(instructionEditor, "instruction");
+    }
+
+    // Pastes clipboard lines into a list editor and reports anything that was skipped
+    private void pasteLines(RecipeListEditor editor, String entryName) {
+        String text = Clipboard.getSystemClipboard().getString();
+        if (text == null || text.trim().isEmpty()) {
+            notificationBar.warn("Copy one " + entryName + " per line before pasting");
+            return;
+        }
+
+        RecipeListEditor.PasteResult result = editor.addLines(text);
+        if (result.skipped() > 0) {
+            notificationBar.warn("Added " + result.added + " " + entryName + "(s). Skipped "
+                    + result.duplicates + " duplicate, "
+                    + result.tooLong + " too long and "
+                    + result.overLimit + " over the " + editor.getMaxItems() + " " + entryName + " limit.");
+        }
+    }
+
+    // Pastes a multi-line list when Ctrl+V (Cmd+V on macOS) is pressed on a list view
+    private void setupPasteShortcut(ListView<String> listView, Runnable pasteAction) {
+        KeyCombination paste = new KeyCodeCombination(KeyCode.V, KeyCombination.SHORTCUT_DOWN);
+        listView.setOnKeyPressed(event -> {
+            if (paste.match(event)) {
+                pasteAction.run();
+                event.consume();
+            }
+        });
+    }
+
+    // Shows a popup dialog asking the user to confirm, returns true if they chose OK
+    private boolean showConfirmDialog(String message) {
+        return RecipeDialog.confirm(message);
     }
     
     /**
@@ -786,18 +895,8 @@ public class Main extends Application {
      * @param limit The character limit
      */
     private void setupCharacterCounter(Label countLabel, javafx.beans.property.StringProperty textProperty, int limit) {
-        // Initial styling
-        countLabel.setStyle(
-            "-fx-background-color: " + BROWN_LIGHT + ";" +
-            "-fx-padding: 2 8 2 8;" +
-            "-fx-background-radius: 10;" +
-            "-fx-font-family: 'Georgia';" +
-            "-fx-font-size: 11px;"
-        );
-        
-        // Set text color directly
-        countLabel.setTextFill(DARK_BROWN_COLOR);
-        
+        countLabel.getStyleClass().add("rv-counter");
+
         // Bind text content
         countLabel.textProperty().bind(Bindings.createStringBinding(() -> {
             int length = textProperty.getValue().length();
@@ -819,10 +918,198 @@ public class Main extends Application {
         List<String> instructions = new ArrayList<>(instructionsList);
         String notes = notesArea.getText();
 
-        RecipePDFWriter.saveRecipeToPDF(name, category, author, prepTime, cookTime, totalTime, servings, theme, ingredients, instructions, notes);
+        String imagePath = imageFile != null ? imageFile.getAbsolutePath() : "";
+
+        Recipe recipe = new Recipe(name, category, author, prepTime, cookTime, totalTime, servings, theme, ingredients, instructions, notes, imagePath);
+        if (!storeRecipe(recipe)) {
+            return;
+        }
+
+        // The estimate goes into the PDF only; the vault keeps the notes as the user wrote them
+        if (nutritionInNotesCheckBox.isSelected()) {
+            String pdfNotes = notesWithEstimate(recipe);
+            if (pdfNotes != null) {
+                recipe = new Recipe(name, category, author, prepTime, cookTime, totalTime, servings, theme, ingredients, instructions, pdfNotes, imagePath);
+            } else {
+                notificationBar.warn("The notes leave no room for the nutrition estimate, it was left out of the PDF");
+            }
+        }
+        RecipePDFWriter.saveRecipeToPDF(recipe);
+    }
+
+    // Appends the nutrition estimate to the notes, shortened if the full one would overflow the template's
+    // Notes field; null if even the short one does not fit
+    private String notesWithEstimate(Recipe recipe) {
+        int capacity = notesFieldCapacity;
+        try {
+            TemplateDescriptor template = TemplateAnalyzer.forTheme(recipe.getTheme());
+            int field = template.indexOf("Notes");
+            if (field >= 0) {
+                capacity = template.getCapacity(field);
+            }
+        } catch (IOException e) {
+            // Unknown theme, the save reports it
+        }
+
+        String notes = recipe.getNotes().trim();
+        NutritionEstimator.Estimate estimate = NutritionEstimator.getDefault().estimate(recipe);
+        for (String summary : new String[]{estimate.summary(), estimate.shortSummary()}) {
+            String pdfNotes = notes.isEmpty() ? summary : notes + "\n" + summary;
+            if (pdfNotes.length() <= capacity) {
+                return pdfNotes;
+            }
+        }
+        return null;
+    }
+
+    // Saves the recipe to the vault, asking first if it looks like a copy of another stored recipe
+    private boolean storeRecipe(Recipe recipe) {
+        try {
+            openVault();
+
+            Long existingId = recipeStore.findId(recipe);
+            List<RecipeDeduplicator.Match> matches = deduplicator.findDuplicates(recipe, existingId != null ? existingId : -1);
+            if (!matches.isEmpty()) {
+                RecipeDeduplicator.Match match = matches.get(0);
+                Recipe original = recipeStore.get(match.getDuplicateId());
+                String message = String.format("This recipe looks like a copy of '%s' by %s (%.0f%% similar). Save it anyway?",
+                        original.getName(), original.getAuthor(), match.getSimilarity() * 100);
+                if (!showConfirmDialog(message)) {
+                    return false;
+                }
+            }
+
+            long id = recipeStore.save(recipe);
+            deduplicator.add(id, recipe);
+        } catch (IOException e) {
+            // Still let the user export the PDF if the vault cannot be written
+            notificationBar.error("Could not save the recipe to the vault: " + e.getMessage());
+        }
+        return true;
+    }
+
+    // Opens the recipe vault and its near-duplicate index the first time they are needed
+    private void openVault() throws IOException {
+        if (recipeStore == null) {
+            recipeStore = RecipeStore.open(RecipeStore.DEFAULT_DIRECTORY);
+            deduplicator = RecipeDeduplicator.forStore(recipeStore);
+        }
+    }
+
+    // Lets the user pick recipes from the vault and saves their combined shopping list as a PDF
+    private void createShoppingList(Stage stage) {
+        List<Long> ids = new ArrayList<>();
+        ListView<String> recipeListView = new ListView<>();
+        try {
+            openVault();
+            for (Map.Entry<Long, Recipe> entry : recipeStore.getAll().entrySet()) {
+                ids.add(entry.getKey());
+                recipeListView.getItems().add(entry.getValue().getName() + " (" + entry.getValue().getAuthor() + ")");
+            }
+        } catch (IOException e) {
+            notificationBar.error("Could not open the recipe vault: " + e.getMessage());
+            return;
+        }
+        if (ids.isEmpty()) {
+            notificationBar.info("Save some recipes first, then plan a shopping list from them");
+            return;
+        }
+
+        recipeListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        recipeListView.setPrefHeight(300);
+        TextField plannedServingsField = new TextField();
+        plannedServingsField.setPromptText("As written in each recipe");
+        Label servingsLabel = new Label("Servings per recipe:");
+        servingsLabel.getStyleClass().add("rv-label");
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Shopping List");
+        dialog.setHeaderText("Select the recipes to shop for (Ctrl+click to select several)");
+        dialog.getDialogPane().getButtonTypes().addAll(ButtonType.OK, ButtonType.CANCEL);
+        // A typo must not silently scale every recipe to one serving, so only blank or a positive number is accepted
+        Label servingsError = new Label("Enter a whole number of servings, or leave it empty");
+        servingsError.getStyleClass().add("rv-note");
+        servingsError.visibleProperty().bind(Bindings.createBooleanBinding(
+                () -> parsePlannedServings(plannedServingsField.getText()) == 0, plannedServingsField.textProperty()));
+        servingsError.visibleProperty().addListener((obs, wasInvalid, invalid) -> {
+            if (invalid) {
+                plannedServingsField.getStyleClass().add("rv-invalid");
+            } else {
+                plannedServingsField.getStyleClass().remove("rv-invalid");
+            }
+        });
+        dialog.getDialogPane().setContent(new VBox(10, recipeListView, new HBox(10, servingsLabel, plannedServingsField), servingsError));
+        dialog.getDialogPane().lookupButton(ButtonType.OK).disableProperty().bind(servingsError.visibleProperty());
+        ThemeManager.apply(dialog.getDialogPane(), "rv-dialog");
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+
+        List<Integer> selected = new ArrayList<>(recipeListView.getSelectionModel().getSelectedIndices());
+        if (selected.isEmpty()) {
+            notificationBar.warn("Select at least one recipe for the shopping list");
+            return;
+        }
+        int plannedServings = parsePlannedServings(plannedServingsField.getText());
+        if (plannedServings == 0) {
+            notificationBar.warn("Servings per recipe must be a whole number above 0");
+            return;
+        }
+        boolean asWritten = plannedServings < 0;
+
+        FileChooser listChooser = new FileChooser();
+        listChooser.setTitle("Save Shopping List");
+        listChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF Files", "*.pdf"));
+        listChooser.setInitialFileName("Shopping_List.pdf");
+        File file = listChooser.showSaveDialog(stage);
+        if (file == null) {
+            return;
+        }
+
+        MealPlanner planner = MealPlanner.create();
+        for (int index : selected) {
+            Recipe recipe = recipeStore.get(ids.get(index));
+            if (asWritten) {
+                planner.add(recipe);
+            } else {
+                planner.add(recipe, plannedServings);
+            }
+        }
+        ShoppingList list = planner.shoppingList("Shopping List");
+        String theme = themeComboBox.getValue() != null ? themeComboBox.getValue() : "Spring";
+
+        // Filling the template takes a moment, so keep the form responsive while the PDF is written
+        Thread writer = new Thread(() -> {
+            try {
+                Files.write(file.toPath(), ShoppingListPDFWriter.render(list, theme));
+                Platform.runLater(() -> notificationBar.success("Shopping list with " + list.size() + " items saved to " + file.getName()));
+            } catch (FormFillException e) {
+                // Runs off the FX thread, so report through the notification bar rather than a dialog
+                Platform.runLater(() -> notificationBar.error("Could not fill the shopping list fields: "
+                        + String.join(", ", e.getFieldNames())));
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> notificationBar.error("Could not save the shopping list: " + e.getMessage()));
+            }
+        }, "shopping-list-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    // The planned servings per recipe: -1 for an empty field, meaning as written in each recipe, 0 if invalid
+    private static int parsePlannedServings(String text) {
+        String trimmed = text == null ? "" : text.trim();
+        if (trimmed.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(trimmed));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     public static void main(String[] args) {
+        StartupTimer.mark("main() entered");
         launch(args);
     }
 
@@ -845,5 +1132,11 @@ public class Main extends Application {
         instructionsList.clear();
 
         notesArea.clear();
+
+        removePhoto();
+
+        // A fresh form starts without highlighted fields until the next save attempt
+        validator.setShowErrors(false);
+        notificationBar.setStatus(null);
     }
 }
@@ -0,0 +1,326 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * MealPlanner combines the ingredients of the recipes planned for a week (or a catering menu)
+ * into one shopping list.
+ * Ingredients found in the {@link NutritionTable} are summed by table row in primitive arrays,
+ * one array each for weights, volumes and counted items, so adding a recipe costs one parse and one
+ * perfect-hash lookup per ingredient line. Amounts are converted to a common unit when the list is built.
+ * Ingredients missing from the table are summed by their name and listed under "Other".
+ */
+public class MealPlanner {
+
+    private static final String OTHER_AISLE = "Other";
+
+    private final NutritionTable table;
+
+    // Totals per table row: grams, millilitres and counted items
+    private final double[] weight;
+    private final double[] volume;
+    private final double[] count;
+    private final boolean[] needed;
+    private final int[] usedRows;
+    private int usedCount;
+
+    // Ingredients missing from the table: name -> {grams, millilitres, count}
+    private final Map<String, double[]> others = new TreeMap<>();
+
+    private final List<String> recipeNames = new ArrayList<>();
+    private int servings;
+
+    /**
+     * Creates an empty plan.
+     *
+     * @param table The ingredient table giving aisles and unit conversions.
+     */
+    public MealPlanner(NutritionTable table) {
+        this.table = table;
+        int rows = table.size();
+        weight = new double[rows];
+        volume = new double[rows];
+        count = new double[rows];
+        needed = new boolean[rows];
+        usedRows = new int[rows];
+    }
+
+    /**
+     * @return An empty plan using the default ingredient table.
+     */
+    public static MealPlanner create() {
+        return new MealPlanner(NutritionTable.getDefault());
+    }
+
+    /**
+     * Adds a recipe to the plan as written.
+     *
+     * @param recipe The recipe.
+     */
+    public void add(Recipe recipe) {
+        int recipeServings = NutritionEstimator.parseServings(recipe.getServings());
+        add(recipe, recipeServings);
+    }
+
+    /**
+     * Adds a recipe to the plan, scaling its ingredients to the number of servings wanted.
+     *
+     * @param recipe         The recipe.
+     * @param wantedServings The number of servings to cook.
+     */
+    public void add(Recipe recipe, int wantedServings) {
+        double scale = (double) wantedServings / NutritionEstimator.parseServings(recipe.getServings());
+        recipeNames.add(recipe.getName());
+        servings += wantedServings;
+
+        for (String line : recipe.getIngredients()) {
+            IngredientParser.ParsedIngredient parsed = IngredientParser.parse(line);
+            if (parsed.getItem().isEmpty()) {
+                continue;
+            }
+            int row = table.find(parsed.getItem());
+            double[] totals = null;
+            if (row >= 0) {
+                if (!needed[row]) {
+                    needed[row] = true;
+                    usedRows[usedCount++] = row;
+                }
+            } else {
+                totals = others.computeIfAbsent(parsed.getItem(), item -> new double[3]);
+            }
+            if (!parsed.hasQuantity()) {
+                continue;
+            }
+
+            IngredientParser.Unit unit = parsed.getUnit();
+            double amount = parsed.getQuantity() * unit.getFactor() * scale;
+            int kind = unit.getKind().ordinal();
+            if (totals != null) {
+                totals[kind] += amount;
+            } else if (unit.getKind() == IngredientParser.Kind.WEIGHT) {
+                weight[row] += amount;
+            } else if (unit.getKind() == IngredientParser.Kind.VOLUME) {
+                volume[row] += amount;
+            } else {
+                count[row] += amount;
+            }
+        }
+    }
+
+    /**
+     * @return The names of the planned recipes.
+     */
+    public List<String> getRecipeNames() {
+        return recipeNames;
+    }
+
+    /**
+     * Builds the shopping list of everything added so far.
+     *
+     * @param title The title printed on the list.
+     * @return The list, grouped by aisle.
+     */
+    public ShoppingList shoppingList(String title) {
+        Map<String, List<ShoppingList.Item>> aisles = new TreeMap<>();
+        for (int i = 0; i < usedCount; i++) {
+            int row = usedRows[i];
+            String aisle = table.getAisle(row);
+            aisles.computeIfAbsent(aisle, a -> new ArrayList<>())
+                    .add(new ShoppingList.Item(table.getName(row), aisle, amount(row)));
+        }
+
+        Map<String, List<ShoppingList.Item>> ordered = new LinkedHashMap<>();
+        for (Map.Entry<String, List<ShoppingList.Item>> entry : aisles.entrySet()) {
+            entry.getValue().sort(Comparator.comparing(ShoppingList.Item::getName));
+            ordered.put(entry.getKey(), entry.getValue());
+        }
+        if (!others.isEmpty()) {
+            List<ShoppingList.Item> items = new ArrayList<>();
+            for (Map.Entry<String, double[]> entry : others.entrySet()) {
+                double[] totals = entry.getValue();
+                List<String> parts = new ArrayList<>();
+                if (totals[0] > 0) {
+                    parts.add(formatWeight(totals[0]));
+                }
+                if (totals[1] > 0) {
+                    parts.add(formatVolume(totals[1]));
+                }
+                if (totals[2] > 0) {
+                    parts.add(formatCount(totals[2]));
+                }
+                items.add(new ShoppingList.Item(entry.getKey(), OTHER_AISLE, String.join(" + ", parts)));
+            }
+            ordered.put(OTHER_AISLE, items);
+        }
+        return new ShoppingList(title, recipeNames, servings, ordered);
+    }
+
+    // Picks one unit for an ingredient: counted items and volumes stay as they are when that is all
+    // the recipes used, anything mixed is converted to grams
+    private String amount(int row) {
+        boolean hasWeight = weight[row] > 0;
+        boolean hasVolume = volume[row] > 0;
+        boolean hasCount = count[row] > 0;
+        if (!hasWeight && !hasVolume && !hasCount) {
+            return "";
+        }
+        if (!hasWeight && !hasVolume) {
+            return formatCount(count[row]);
+        }
+        if (!hasWeight && !hasCount) {
+            // Litres suit liquids, but several litres of flour or sugar are easier to buy by weight
+            double density = table.getGramsPerCup(row) / IngredientParser.Unit.CUP.getFactor();
+            if (volume[row] >= 1000 && density > 0 && Math.abs(density - 1) > 0.15) {
+                return formatWeight(table.toGrams(row, volume[row], IngredientParser.Unit.MILLILITRE));
+            }
+            return formatVolume(volume[row]);
+        }
+
+        double grams = weight[row] + table.toGrams(row, volume[row], IngredientParser.Unit.MILLILITRE);
+        String amount = formatWeight(grams);
+        if (hasCount) {
+            double countGrams = table.toGrams(row, count[row], IngredientParser.Unit.PIECE);
+            amount = Double.isNaN(countGrams) ? amount + " + " + formatCount(count[row]) : formatWeight(grams + countGrams);
+        }
+        return amount;
+    }
+
+    static String formatWeight(double grams) {
+        if (grams >= 1000) {
+            return String.format(Locale.ROOT, "%.1f kg", grams / 1000);
+        }
+        return String.format(Locale.ROOT, "%.0f g", Math.ceil(grams));
+    }
+
+    // Large volumes in litres, kitchen volumes in cups, spoons for small amounts
+    static String formatVolume(double millilitres) {
+        if (millilitres >= 1000) {
+            return String.format(Locale.ROOT, "%.1f l", millilitres / 1000);
+        }
+        double cups = millilitres / IngredientParser.Unit.CUP.getFactor();
+        if (cups >= 0.25) {
+            double quarters = Math.ceil(cups * 4 - 0.01) / 4;
+            return fraction(quarters) + (quarters > 1 ? " cups" : " cup");
+        }
+        double tablespoons = millilitres / IngredientParser.Unit.TABLESPOON.getFactor();
+        if (tablespoons >= 1) {
+            return fraction(Math.ceil(tablespoons * 2 - 0.01) / 2) + " tbsp";
+        }
+        return fraction(Math.max(0.25, Math.ceil(millilitres / IngredientParser.Unit.TEASPOON.getFactor() * 4 - 0.01) / 4)) + " tsp";
+    }
+
+    static String formatCount(double count) {
+        return fraction(Math.ceil(count * 2 - 0.01) / 2);
+    }
+
+    // Writes 2.25 as "2 1/4"
+    private static String fraction(double value) {
+        long whole = (long) Math.floor(value);
+        int quarters = (int) Math.round((value - whole) * 4);
+        String part = quarters == 1 ? "1/4" : quarters == 2 ? "1/2" : quarters == 3 ? "3/4" : "";
+        if (quarters == 4) {
+            whole++;
+        }
+        if (whole == 0 && !part.isEmpty()) {
+            return part;
+        }
+        return part.isEmpty() ? Long.toString(whole) : whole + " " + part;
+    }
+
+    /**
+     * Prints the shopping list for recipes in the vault and optionally saves it as a PDF.
+     * Usage: MealPlanner [--servings N] [--theme Spring] [--out list.pdf] [--title text] recipe...
+     * where each recipe is a vault id (#12 or 12) or a recipe name. Without recipes, the whole vault is planned.
+     *
+     * @param args The options and recipes.
+     * @throws IOException If the vault cannot be read or the PDF cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int wantedServings = 0;
+        String theme = "Spring";
+        String title = "Shopping List";
+        Path output = null;
+        List<String> selection = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--servings":
+                    wantedServings = Integer.parseInt(args[++i]);
+                    break;
+                case "--theme":
+                    theme = args[++i];
+                    break;
+                case "--out":
+                    output = Paths.get(args[++i]);
+                    break;
+                case "--title":
+                    title = args[++i];
+                    break;
+                default:
+                    selection.add(args[i]);
+            }
+        }
+
+        RecipeStore store = RecipeStore.open(RecipeStore.DEFAULT_DIRECTORY);
+        List<Recipe> recipes = new ArrayList<>();
+        if (selection.isEmpty()) {
+            recipes.addAll(store.getAll().values());
+        }
+        for (String wanted : selection) {
+            Recipe recipe = findRecipe(store, wanted);
+            if (recipe == null) {
+                System.err.println("No recipe in the vault matches '" + wanted + "'");
+                System.exit(1);
+            }
+            recipes.add(recipe);
+        }
+
+        long start = System.nanoTime();
+        MealPlanner planner = create();
+        for (Recipe recipe : recipes) {
+            if (wantedServings > 0) {
+                planner.add(recipe, wantedServings);
+            } else {
+                planner.add(recipe);
+            }
+        }
+        ShoppingList list = planner.shoppingList(title);
+        long elapsed = System.nanoTime() - start;
+
+        for (String line : list.toLines()) {
+            System.out.println(line);
+        }
+        System.out.printf(Locale.ROOT, "%d recipes, %d items, planned in %.1f ms%n",
+                recipes.size(), list.size(), elapsed / 1e6);
+
+        if (output != null) {
+            Files.write(output, ShoppingListPDFWriter.render(list, theme));
+            System.out.println("Saved " + output);
+        }
+    }
+
+    static Recipe findRecipe(RecipeStore store, String wanted) {
+        String id = wanted.startsWith("#") ? wanted.substring(1) : wanted;
+        if (id.chars().allMatch(Character::isDigit) && !id.isEmpty()) {
+            Recipe recipe = store.get(Long.parseLong(id));
+            if (recipe != null) {
+                return recipe;
+            }
+        }
+        for (Recipe recipe : store.getAll().values()) {
+            if (recipe.getName().equalsIgnoreCase(wanted)) {
+                return recipe;
+            }
+        }
+        return null;
+    }
+}
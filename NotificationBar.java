@@ -0,0 +1,129 @@
+package org.example.recipevault;
+
+import javafx.animation.PauseTransition;
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * NotificationBar shows messages below the form without blocking it.
+ * Short-lived toasts report the result of an action and disappear on their own,
+ * while the status line shows what the form still needs before it can be saved.
+ * Toast labels are built once and reused, so showing a message does not create new nodes.
+ */
+public class NotificationBar extends VBox {
+
+    /** How a toast is styled. */
+    public enum Level {
+        INFO("rv-toast-info"),
+        SUCCESS("rv-toast-success"),
+        WARNING("rv-toast-warning"),
+        ERROR("rv-toast-error");
+
+        private final String styleClass;
+
+        Level(String styleClass) {
+            this.styleClass = styleClass;
+        }
+    }
+
+    private static final int MAX_TOASTS = 3;
+    private static final Duration TOAST_DURATION = Duration.seconds(4);
+
+    private final VBox toastBox = new VBox(4);
+    private final Label statusLabel = new Label();
+    private final Deque<Label> toastPool = new ArrayDeque<>();
+
+    /**
+     * Creates an empty notification bar with its toast labels prebuilt.
+     */
+    public NotificationBar() {
+        super(6);
+        getStyleClass().add("rv-notification-bar");
+        statusLabel.getStyleClass().add("rv-status");
+        statusLabel.setWrapText(true);
+        statusLabel.managedProperty().bind(statusLabel.visibleProperty());
+        statusLabel.setVisible(false);
+
+        for (int i = 0; i < MAX_TOASTS; i++) {
+            toastPool.push(createToast());
+        }
+        getChildren().addAll(toastBox, statusLabel);
+    }
+
+    /**
+     * Sets the persistent status line.
+     *
+     * @param status The status text, or null to hide the status line.
+     */
+    public void setStatus(String status) {
+        statusLabel.setText(status);
+        statusLabel.setVisible(status != null && !status.isEmpty());
+    }
+
+    public void info(String message) {
+        show(Level.INFO, message);
+    }
+
+    public void success(String message) {
+        show(Level.SUCCESS, message);
+    }
+
+    public void warn(String message) {
+        show(Level.WARNING, message);
+    }
+
+    public void error(String message) {
+        show(Level.ERROR, message);
+    }
+
+    /**
+     * Shows a toast. Showing the same message again restarts its timer instead of stacking a copy,
+     * and the oldest toast makes room when the bar is full.
+     *
+     * @param level   How the toast is styled.
+     * @param message The message to show.
+     */
+    public void show(Level level, String message) {
+        for (javafx.scene.Node node : toastBox.getChildren()) {
+            Label toast = (Label) node;
+            if (message.equals(toast.getText()) && toast.getStyleClass().contains(level.styleClass)) {
+                ((PauseTransition) toast.getUserData()).playFromStart();
+                return;
+            }
+        }
+
+        if (toastBox.getChildren().size() >= MAX_TOASTS) {
+            release((Label) toastBox.getChildren().get(0));
+        }
+
+        Label toast = toastPool.isEmpty() ? createToast() : toastPool.pop();
+        toast.getStyleClass().setAll("label", "rv-toast", level.styleClass);
+        toast.setText(message);
+        toastBox.getChildren().add(toast);
+        ((PauseTransition) toast.getUserData()).playFromStart();
+    }
+
+    private Label createToast() {
+        Label toast = new Label();
+        toast.setWrapText(true);
+        toast.setMaxWidth(Double.MAX_VALUE);
+        PauseTransition timer = new PauseTransition(TOAST_DURATION);
+        timer.setOnFinished(e -> release(toast));
+        toast.setUserData(timer);
+        toast.setOnMouseClicked(e -> release(toast));
+        return toast;
+    }
+
+    // Takes a toast off the bar and returns it to the pool
+    private void release(Label toast) {
+        ((PauseTransition) toast.getUserData()).stop();
+        if (toastBox.getChildren().remove(toast)) {
+            toast.setText(null);
+            toastPool.push(toast);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * NutritionEstimator estimates the calories, macronutrients and cost per serving of a recipe.
+ * Each ingredient line is parsed into a quantity, unit and item, the item is looked up in the
+ * {@link NutritionTable}, and the amounts are converted to grams and summed.
+ * Lines without an amount ("salt to taste") or with an ingredient missing from the table are
+ * left out of the totals and listed in the estimate.
+ */
+public class NutritionEstimator {
+
+    private static final Pattern FIRST_NUMBER = Pattern.compile("\\d+(?:\\.\\d+)?");
+
+    private final NutritionTable table;
+
+    /**
+     * Creates an estimator using the given ingredient table.
+     *
+     * @param table The nutrition and price table.
+     */
+    public NutritionEstimator(NutritionTable table) {
+        this.table = table;
+    }
+
+    /**
+     * @return An estimator using the default ingredient table.
+     */
+    public static NutritionEstimator getDefault() {
+        return new NutritionEstimator(NutritionTable.getDefault());
+    }
+
+    /**
+     * Estimates the nutrition per serving of a recipe.
+     *
+     * @param recipe The recipe.
+     * @return The estimate.
+     */
+    public Estimate estimate(Recipe recipe) {
+        return estimate(recipe.getIngredients(), recipe.getServings());
+    }
+
+    /**
+     * Estimates the nutrition per serving of a list of ingredient lines.
+     *
+     * @param ingredients The ingredient lines, e.g. "2 cups flour".
+     * @param servings    The servings text, e.g. "4" or "4-6"; the first number is used.
+     * @return The estimate.
+     */
+    public Estimate estimate(List<String> ingredients, String servings) {
+        double calories = 0;
+        double protein = 0;
+        double carbs = 0;
+        double fat = 0;
+        double cost = 0;
+        List<String> unmatched = new ArrayList<>();
+
+        for (String line : ingredients) {
+            IngredientParser.ParsedIngredient parsed = IngredientParser.parse(line);
+            int row = parsed.hasQuantity() ? table.find(parsed.getItem()) : -1;
+            double grams = row >= 0 ? table.toGrams(row, parsed.getQuantity(), parsed.getUnit()) : Double.NaN;
+            if (Double.isNaN(grams)) {
+                unmatched.add(line);
+                continue;
+            }
+            double hundreds = grams / 100;
+            calories += hundreds * table.getCalories(row);
+            protein += hundreds * table.getProtein(row);
+            carbs += hundreds * table.getCarbs(row);
+            fat += hundreds * table.getFat(row);
+            cost += hundreds * table.getPrice(row);
+        }
+
+        int portions = parseServings(servings);
+        return new Estimate(portions, calories / portions, protein / portions, carbs / portions,
+                fat / portions, cost / portions, ingredients.size() - unmatched.size(), unmatched);
+    }
+
+    /**
+     * Reads the number of servings, taking the first number in the text ("Serves 4-6" gives 4).
+     *
+     * @param servings The servings text.
+     * @return The number of servings, at least 1.
+     */
+    static int parseServings(String servings) {
+        if (servings != null) {
+            Matcher matcher = FIRST_NUMBER.matcher(servings);
+            if (matcher.find()) {
+                int value = (int) Math.round(Double.parseDouble(matcher.group()));
+                if (value > 0) {
+                    return value;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * The estimated nutrition and cost of one serving.
+     */
+    public static class Estimate {
+        private final int servings;
+        private final double calories;
+        private final double protein;
+        private final double carbs;
+        private final double fat;
+        private final double cost;
+        private final int matched;
+        private final List<String> unmatched;
+
+        Estimate(int servings, double calories, double protein, double carbs, double fat, double cost,
+                 int matched, List<String> unmatched) {
+            this.servings = servings;
+            this.calories = calories;
+            this.protein = protein;
+            this.carbs = carbs;
+            this.fat = fat;
+            this.cost = cost;
+            this.matched = matched;
+            this.unmatched = Collections.unmodifiableList(unmatched);
+        }
+
+        public int getServings() {
+            return servings;
+        }
+
+        public double getCalories() {
+            return calories;
+        }
+
+        public double getProtein() {
+            return protein;
+        }
+
+        public double getCarbs() {
+            return carbs;
+        }
+
+        public double getFat() {
+            return fat;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        /**
+         * @return The number of ingredient lines included in the totals.
+         */
+        public int getMatched() {
+            return matched;
+        }
+
+        /**
+         * @return The ingredient lines left out of the totals.
+         */
+        public List<String> getUnmatched() {
+            return unmatched;
+        }
+
+        /**
+         * @return A one-line summary, e.g. "Per serving: 420 kcal, 12 g protein, 50 g carbs, 18 g fat, about $2.10".
+         */
+        public String summary() {
+            return String.format(Locale.ROOT, "Per serving: %.0f kcal, %.0f g protein, %.0f g carbs, %.0f g fat, about $%.2f",
+                    calories, protein, carbs, fat, cost);
+        }
+
+        /**
+         * @return The summary without the macronutrients, e.g. "Per serving: 420 kcal, about $2.10", for a
+         *         field with little room left.
+         */
+        public String shortSummary() {
+            return String.format(Locale.ROOT, "Per serving: %.0f kcal, about $%.2f", calories, cost);
+        }
+    }
+
+    /**
+     * Prints the estimate of every recipe in the vault.
+     *
+     * @param args Optionally the vault directory.
+     * @throws IOException If the vault cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : RecipeStore.DEFAULT_DIRECTORY;
+        RecipeStore store = RecipeStore.open(directory);
+        NutritionEstimator estimator = getDefault();
+
+        long start = System.nanoTime();
+        Map<Long, Estimate> estimates = store.getAll().entrySet().parallelStream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> estimator.estimate(entry.getValue()),
+                        (first, second) -> first, TreeMap::new));
+        long elapsed = System.nanoTime() - start;
+
+        int incomplete = 0;
+        for (Map.Entry<Long, Estimate> entry : estimates.entrySet()) {
+            Recipe recipe = store.get(entry.getKey());
+            Estimate estimate = entry.getValue();
+            if (!estimate.getUnmatched().isEmpty()) {
+                incomplete++;
+            }
+            System.out.printf(Locale.ROOT, "#%d %s: %s (%d of %d ingredients)%n", entry.getKey(), recipe.getName(),
+                    estimate.summary(), estimate.getMatched(), recipe.getIngredients().size());
+        }
+        System.out.printf(Locale.ROOT, "%d recipes estimated in %.1f ms, %d with ingredients missing from the table%n",
+                estimates.size(), elapsed / 1e6, incomplete);
+    }
+}
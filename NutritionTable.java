@@ -0,0 +1,358 @@
+package org.example.recipevault;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * NutritionTable holds the nutrition and price of common ingredients, read from nutrition.csv.
+ * Each column is kept in its own primitive array indexed by row, and ingredient names are looked up
+ * through a minimal perfect hash built when the table is loaded, so a lookup hashes the name twice,
+ * reads two ints and compares one string, with no collisions to walk.
+ */
+public class NutritionTable {
+
+    /** System property naming a CSV file to use instead of the bundled table. */
+    public static final String TABLE_PROPERTY = "recipevault.nutritionTable";
+
+    private static NutritionTable defaultTable;
+
+    // Columns, one entry per ingredient row; nutrition and price are per 100 g
+    private final String[] names;
+    private final float[] calories;
+    private final float[] protein;
+    private final float[] carbs;
+    private final float[] fat;
+    private final float[] price;
+    private final float[] gramsPerCup;
+    private final float[] gramsEach;
+    private final short[] aisle;
+    private final String[] aisleNames;
+
+    // Perfect hash over every name and alternative name: bucket -> seed, slot -> key, key -> row
+    private final String[] keys;
+    private final int[] keyRows;
+    private final int[] bucketSeeds;
+    private final int[] slotKeys;
+
+    private NutritionTable(List<String[]> rows) {
+        int count = rows.size();
+        names = new String[count];
+        calories = new float[count];
+        protein = new float[count];
+        carbs = new float[count];
+        fat = new float[count];
+        price = new float[count];
+        gramsPerCup = new float[count];
+        gramsEach = new float[count];
+        aisle = new short[count];
+
+        Map<String, Short> aisles = new LinkedHashMap<>();
+        Map<String, Integer> keyIndex = new LinkedHashMap<>();
+        for (int row = 0; row < count; row++) {
+            String[] cells = rows.get(row);
+            String[] aliases = cells[0].split("\\|");
+            names[row] = aliases[0].trim();
+            calories[row] = Float.parseFloat(cells[1].trim());
+            protein[row] = Float.parseFloat(cells[2].trim());
+            carbs[row] = Float.parseFloat(cells[3].trim());
+            fat[row] = Float.parseFloat(cells[4].trim());
+            price[row] = Float.parseFloat(cells[5].trim());
+            gramsPerCup[row] = Float.parseFloat(cells[6].trim());
+            gramsEach[row] = Float.parseFloat(cells[7].trim());
+            String aisleName = cells[8].trim();
+            aisle[row] = aisles.computeIfAbsent(aisleName, a -> (short) aisles.size());
+            for (String alias : aliases) {
+                // The first row listing a name wins
+                keyIndex.putIfAbsent(normalize(alias), row);
+            }
+        }
+        aisleNames = aisles.keySet().toArray(new String[0]);
+
+        keys = keyIndex.keySet().toArray(new String[0]);
+        keyRows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keyRows[i] = keyIndex.get(keys[i]);
+        }
+        bucketSeeds = new int[Math.max(1, keys.length / 4)];
+        slotKeys = new int[Math.max(1, keys.length)];
+        buildPerfectHash();
+    }
+
+    /**
+     * Returns the table named by the recipevault.nutritionTable property, or the bundled table.
+     *
+     * @return The shared nutrition table.
+     */
+    public static synchronized NutritionTable getDefault() {
+        if (defaultTable == null) {
+            try {
+                String path = System.getProperty(TABLE_PROPERTY);
+                if (path != null) {
+                    defaultTable = load(Paths.get(path));
+                } else {
+                    try (InputStream in = NutritionTable.class.getResourceAsStream("/nutrition.csv")) {
+                        if (in == null) {
+                            throw new IOException("nutrition.csv is missing from the application resources");
+                        }
+                        defaultTable = load(new InputStreamReader(in, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return defaultTable;
+    }
+
+    /**
+     * Loads a table from a CSV file.
+     *
+     * @param file The CSV file, with the columns of the bundled nutrition.csv.
+     * @return The loaded table.
+     * @throws IOException If the file cannot be read or a row is malformed.
+     */
+    public static NutritionTable load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    private static NutritionTable load(Reader reader) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        boolean header = true;
+        int lineNumber = 0;
+        for (String line; (line = lines.readLine()) != null; ) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (header) {
+                header = false;
+                continue;
+            }
+            String[] cells = line.split(",", -1);
+            if (cells.length != 9) {
+                throw new IOException("Line " + lineNumber + " of the nutrition table has " + cells.length + " columns instead of 9");
+            }
+            rows.add(cells);
+        }
+        try {
+            return new NutritionTable(rows);
+        } catch (NumberFormatException e) {
+            throw new IOException("The nutrition table has a value that is not a number: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finds the row of an ingredient. If the whole name is not in the table, leading words are dropped
+     * one at a time ("extra large free-range eggs" is found as "eggs") and plurals are tried singular.
+     *
+     * @param item The ingredient name as parsed from an ingredient line.
+     * @return The row, or -1 if the ingredient is not in the table.
+     */
+    public int find(String item) {
+        String name = normalize(item);
+        while (!name.isEmpty()) {
+            int row = lookup(name);
+            if (row < 0 && name.endsWith("es")) {
+                row = lookup(name.substring(0, name.length() - 2));
+            }
+            if (row < 0 && name.endsWith("s")) {
+                row = lookup(name.substring(0, name.length() - 1));
+            }
+            if (row >= 0) {
+                return row;
+            }
+            int space = name.indexOf(' ');
+            name = space < 0 ? "" : name.substring(space + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * @return The number of ingredients in the table.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int row) {
+        return names[row];
+    }
+
+    /** @return Calories per 100 g. */
+    public float getCalories(int row) {
+        return calories[row];
+    }
+
+    /** @return Grams of protein per 100 g. */
+    public float getProtein(int row) {
+        return protein[row];
+    }
+
+    /** @return Grams of carbohydrate per 100 g. */
+    public float getCarbs(int row) {
+        return carbs[row];
+    }
+
+    /** @return Grams of fat per 100 g. */
+    public float getFat(int row) {
+        return fat[row];
+    }
+
+    /** @return Price per 100 g. */
+    public float getPrice(int row) {
+        return price[row];
+    }
+
+    /** @return The weight of one cup, or 0 if the ingredient is not measured by volume. */
+    public float getGramsPerCup(int row) {
+        return gramsPerCup[row];
+    }
+
+    /** @return The weight of one whole item, or 0 if the ingredient is not counted. */
+    public float getGramsEach(int row) {
+        return gramsEach[row];
+    }
+
+    /** @return The supermarket aisle the ingredient is found in. */
+    public String getAisle(int row) {
+        return aisleNames[aisle[row]];
+    }
+
+    /**
+     * Converts an amount of an ingredient to grams.
+     *
+     * @param row      The ingredient row.
+     * @param quantity The amount in the given unit.
+     * @param unit     The unit of the amount.
+     * @return The weight in grams, or NaN if the unit cannot be converted for this ingredient.
+     */
+    public double toGrams(int row, double quantity, IngredientParser.Unit unit) {
+        switch (unit.getKind()) {
+            case WEIGHT:
+                return quantity * unit.getFactor();
+            case VOLUME:
+                // Ingredients with no cup weight are taken to weigh the same as water
+                float cup = gramsPerCup[row] > 0 ? gramsPerCup[row] : 236.588f;
+                return quantity * unit.getFactor() * cup / IngredientParser.Unit.CUP.getFactor();
+            default:
+                return gramsEach[row] > 0 ? quantity * gramsEach[row] : Double.NaN;
+        }
+    }
+
+    private int lookup(String key) {
+        int bucket = Math.floorMod(hash(key, 0), bucketSeeds.length);
+        int slot = Math.floorMod(hash(key, bucketSeeds[bucket]), slotKeys.length);
+        int keyNumber = slotKeys[slot];
+        return keyNumber >= 0 && keys[keyNumber].equals(key) ? keyRows[keyNumber] : -1;
+    }
+
+    // Hash and displace: place the largest buckets first, trying seeds until every key of the bucket
+    // lands on a free slot. With one slot per key this gives a minimal perfect hash.
+    private void buildPerfectHash() {
+        Arrays.fill(slotKeys, -1);
+        List<List<Integer>> buckets = new ArrayList<>();
+        for (int i = 0; i < bucketSeeds.length; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        for (int i = 0; i < keys.length; i++) {
+            buckets.get(Math.floorMod(hash(keys[i], 0), bucketSeeds.length)).add(i);
+        }
+
+        Integer[] order = new Integer[buckets.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> buckets.get(b).size() - buckets.get(a).size());
+
+        int[] slots = new int[keys.length];
+        for (int bucket : order) {
+            List<Integer> members = buckets.get(bucket);
+            if (members.isEmpty()) {
+                break;
+            }
+            for (int seed = 1; ; seed++) {
+                if (fits(members, seed, slots)) {
+                    bucketSeeds[bucket] = seed;
+                    for (int i = 0; i < members.size(); i++) {
+                        slotKeys[slots[i]] = members.get(i);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean fits(List<Integer> members, int seed, int[] slots) {
+        for (int i = 0; i < members.size(); i++) {
+            int slot = Math.floorMod(hash(keys[members.get(i)], seed), slotKeys.length);
+            if (slotKeys[slot] >= 0) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] == slot) {
+                    return false;
+                }
+            }
+            slots[i] = slot;
+        }
+        return true;
+    }
+
+    // FNV-1a with a seed, finished with a 32-bit avalanche so nearby seeds give unrelated slots
+    private static int hash(String key, int seed) {
+        int h = 0x811C9DC5 ^ (seed * 0x9E3779B9);
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // Lower case without accents or punctuation, hyphens as spaces, single spaces.
+    // Plain ASCII names, the usual case, skip the Unicode normalizer.
+    static String normalize(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) > 127) {
+                name = Normalizer.normalize(name, Normalizer.Form.NFD);
+                break;
+            }
+        }
+        StringBuilder result = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = Character.toLowerCase(name.charAt(i));
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                if (space && result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(c);
+                space = false;
+            } else if (c == ' ' || c == '-' || Character.isWhitespace(c)) {
+                space = true;
+            }
+        }
+        return result.toString();
+    }
+}
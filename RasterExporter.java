@@ -0,0 +1,336 @@
+package org.example.recipevault;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * RasterExporter renders recipe cards as PNG images for web galleries.
+ * The template background of each page is rasterized once per exporter and kept until it is closed. Each thread keeps its own
+ * copy of every template with the page contents removed, so filling a recipe and rendering that copy draws only
+ * the form fields, onto a transparent image that is then drawn over the cached background.
+ * Template copies and their renderers are reused from one recipe to the next on the same thread.
+ */
+public class RasterExporter implements AutoCloseable {
+
+    /** Resolution used when none is given, about 612 by 792 pixels for a letter page. */
+    public static final float DEFAULT_DPI = 72;
+
+    /**
+     * A template copy of one thread, with its page contents removed, and the renderer drawing it.
+     */
+    private static final class FieldLayerRenderer {
+        final PDDocument document;
+        final PDAcroForm acroForm;
+        final PDFRenderer renderer;
+
+        FieldLayerRenderer(PDDocument document, PDAcroForm acroForm) {
+            this.document = document;
+            this.acroForm = acroForm;
+            this.renderer = new PDFRenderer(document);
+        }
+    }
+
+    private final float dpi;
+    // Template page backgrounds keyed by template and page, about 34 MB each at 300 dpi. Each is a task run by
+    // the first thread needing it, so threads starting together wait for it instead of rasterizing it too
+    private final Map<String, Future<BufferedImage>> backgrounds = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, FieldLayerRenderer>> renderers = ThreadLocal.withInitial(HashMap::new);
+    private final List<FieldLayerRenderer> opened = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean closed;
+
+    /**
+     * Creates an exporter. Close it to release the template copies of its threads and the cached backgrounds.
+     *
+     * @param dpi The resolution of the images.
+     */
+    public RasterExporter(float dpi) {
+        this.dpi = dpi;
+    }
+
+    /**
+     * Renders one page of a recipe card.
+     *
+     * @param recipe The recipe.
+     * @param page   The zero-based template page: 0 for the front, 1 for the notes page.
+     * @return The image.
+     * @throws IOException           If the theme is unknown or the template cannot be read or rendered.
+     * @throws IllegalStateException If the exporter has been closed.
+     */
+    public BufferedImage render(Recipe recipe, int page) throws IOException {
+        // Other threads may still hold copies that close() has closed, so nothing is reused after it
+        if (closed) {
+            throw new IllegalStateException("RasterExporter is closed");
+        }
+        String templateFileName = RecipePDFWriter.templateFileName(recipe.getTheme());
+        if (templateFileName == null) {
+            throw new IOException("Invalid theme: " + recipe.getTheme());
+        }
+        BufferedImage background = background(templateFileName, page);
+
+        // Every field is set, so nothing is left over from the previous recipe drawn on this copy
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String name : RecipePDFWriter.templateFieldNames()) {
+            values.put(name, "");
+        }
+        values.putAll(RecipePDFWriter.fieldValues(recipe));
+
+        Map<String, FieldLayerRenderer> threadRenderers = renderers.get();
+        FieldLayerRenderer renderer = threadRenderers.get(templateFileName);
+        if (renderer == null) {
+            renderer = open(templateFileName);
+            threadRenderers.put(templateFileName, renderer);
+        }
+
+        BufferedImage fields;
+        try {
+            RecipePDFWriter.fillForm(renderer.document, renderer.acroForm, values);
+            fields = renderer.renderer.renderImageWithDPI(page, dpi, ImageType.ARGB);
+        } finally {
+            // Fallback fonts change field appearances for good, so a copy that needed them is not reused
+            if (hasFallbackFonts(renderer.acroForm)) {
+                threadRenderers.remove(templateFileName);
+                opened.remove(renderer);
+                renderer.document.close();
+            }
+        }
+
+        BufferedImage image = new BufferedImage(background.getWidth(), background.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.drawImage(background, 0, 0, null);
+            graphics.drawImage(fields, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Renders a recipe card and saves it as a PNG file.
+     *
+     * @param recipe The recipe.
+     * @param page   The zero-based template page.
+     * @param target The PNG file to write.
+     * @throws IOException If the card cannot be rendered or the file cannot be written.
+     */
+    public void writePNG(Recipe recipe, int page, Path target) throws IOException {
+        BufferedImage image = render(recipe, page);
+        if (!ImageIO.write(image, "png", target.toFile())) {
+            throw new IOException("No PNG writer available");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        renderers.remove();
+        backgrounds.clear();
+        synchronized (opened) {
+            for (FieldLayerRenderer renderer : opened) {
+                renderer.document.close();
+            }
+            opened.clear();
+        }
+    }
+
+    private FieldLayerRenderer open(String templateFileName) throws IOException {
+        PDDocument document = PDDocument.load(RecipePDFWriter.loadTemplate(templateFileName));
+        PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm();
+        if (acroForm == null) {
+            document.close();
+            throw new IOException("No form fields found in the PDF template.");
+        }
+        for (PDPage page : document.getPages()) {
+            page.setContents(new PDStream(document));
+        }
+        FieldLayerRenderer renderer = new FieldLayerRenderer(document, acroForm);
+        opened.add(renderer);
+        return renderer;
+    }
+
+    // The template page without its form fields, rendered once per exporter
+    private BufferedImage background(String templateFileName, int page) throws IOException {
+        String key = templateFileName + "#" + page;
+        Future<BufferedImage> background = backgrounds.get(key);
+        if (background == null) {
+            FutureTask<BufferedImage> task = new FutureTask<>(() -> rasterize(templateFileName, page));
+            background = backgrounds.putIfAbsent(key, task);
+            if (background == null) {
+                background = task;
+                task.run();
+            }
+        }
+        try {
+            return background.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering the background of " + templateFileName, e);
+        } catch (ExecutionException e) {
+            // A failure is not kept, so a later render tries again
+            backgrounds.remove(key, background);
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Could not render the background of " + templateFileName, e.getCause());
+        }
+    }
+
+    private BufferedImage rasterize(String templateFileName, int page) throws IOException {
+        try (PDDocument document = PDDocument.load(RecipePDFWriter.loadTemplate(templateFileName))) {
+            if (page >= document.getNumberOfPages()) {
+                throw new IOException(templateFileName + " has no page " + (page + 1));
+            }
+            document.getPage(page).setAnnotations(Collections.<PDAnnotation>emptyList());
+            return new PDFRenderer(document).renderImageWithDPI(page, dpi, ImageType.RGB);
+        }
+    }
+
+    // ASCII only, as gallery images end up in URLs: 12-Creme_brulee
+    static String fileName(long id, Recipe recipe) {
+        String name = Normalizer.normalize(recipe.getName().trim(), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .replaceAll("[^A-Za-z0-9._-]+", "_");
+        return id + "-" + (name.isEmpty() ? "recipe" : name);
+    }
+
+    private static boolean hasFallbackFonts(PDAcroForm acroForm) {
+        if (acroForm.getDefaultResources() == null) {
+            return false;
+        }
+        for (COSName name : acroForm.getDefaultResources().getFontNames()) {
+            if (name.getName().startsWith("RVUni")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders cards of every recipe in the vault, or of the recipes given, to PNG files in a directory.
+     * Usage: RasterExporter [--dpi 72] [--threads N] [--notes] --out directory [recipe...]
+     * where each recipe is a vault id (#12 or 12) or a recipe name. With --notes, recipes with notes also
+     * get an image of their notes page.
+     *
+     * @param args The options and recipes.
+     * @throws IOException If the vault cannot be read or the directory cannot be created.
+     */
+    public static void main(String[] args) throws IOException {
+        float dpi = DEFAULT_DPI;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean notes = false;
+        Path output = null;
+        List<String> selection = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--dpi":
+                    dpi = Float.parseFloat(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--notes":
+                    notes = true;
+                    break;
+                case "--out":
+                    output = Paths.get(args[++i]);
+                    break;
+                default:
+                    selection.add(args[i]);
+            }
+        }
+        if (output == null) {
+            System.err.println("Usage: RasterExporter [--dpi 72] [--threads N] [--notes] --out <directory> [recipe...]");
+            System.exit(2);
+        }
+        Files.createDirectories(output);
+
+        RecipeStore store = RecipeStore.open(RecipeStore.DEFAULT_DIRECTORY);
+        Map<Long, Recipe> recipes = new LinkedHashMap<>();
+        if (selection.isEmpty()) {
+            recipes.putAll(store.getAll());
+        }
+        for (String wanted : selection) {
+            Recipe recipe = MealPlanner.findRecipe(store, wanted);
+            if (recipe == null) {
+                System.err.println("No recipe in the vault matches '" + wanted + "'");
+                System.exit(1);
+            }
+            for (Map.Entry<Long, Recipe> entry : store.getAll().entrySet()) {
+                if (entry.getValue() == recipe) {
+                    recipes.put(entry.getKey(), recipe);
+                }
+            }
+        }
+
+        long start = System.nanoTime();
+        int images = 0;
+        int failures = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        try (RasterExporter exporter = new RasterExporter(dpi)) {
+            Map<String, Future<?>> renders = new LinkedHashMap<>();
+            for (Map.Entry<Long, Recipe> entry : recipes.entrySet()) {
+                Recipe recipe = entry.getValue();
+                String baseName = fileName(entry.getKey(), recipe);
+                int pages = notes && !recipe.getNotes().trim().isEmpty() ? 2 : 1;
+                for (int page = 0; page < pages; page++) {
+                    int templatePage = page;
+                    Path target = output.resolve(baseName + (page == 0 ? "" : "-notes") + ".png");
+                    renders.put(target.getFileName().toString(),
+                            pool.submit(() -> {
+                                exporter.writePNG(recipe, templatePage, target);
+                                return null;
+                            }));
+                }
+            }
+            for (Map.Entry<String, Future<?>> render : renders.entrySet()) {
+                try {
+                    render.getValue().get();
+                    images++;
+                } catch (ExecutionException e) {
+                    failures++;
+                    System.err.println("Could not render " + render.getKey() + ": " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Export interrupted", e);
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        System.out.printf(Locale.ROOT, "%d images at %.0f dpi in %.1f s (%.1f ms each)%n", images, dpi,
+                elapsed / 1e9, images == 0 ? 0 : elapsed / 1e6 / images);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+}
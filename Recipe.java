@@ -0,0 +1,208 @@
+package org.example.recipevault;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Recipe holds the details entered for a single recipe.
+ * Instances are immutable so they can be shared between the form, the store and the PDF writer.
+ */
+public class Recipe {
+
+    private final String name;
+    private final String category;
+    private final String author;
+    private final String prepTime;
+    private final String cookTime;
+    private final String totalTime;
+    private final String servings;
+    private final String theme;
+    private final List<String> ingredients;
+    private final List<String> instructions;
+    private final String notes;
+    private final String imagePath;
+
+    /**
+     * Creates a recipe from the values entered in the form.
+     *
+     * @param name         The name of the recipe.
+     * @param category     The category of the recipe.
+     * @param author       The author of the recipe.
+     * @param prepTime     The preparation time of the recipe.
+     * @param cookTime     The cooking time of the recipe.
+     * @param totalTime    The total time required for the recipe.
+     * @param servings     The number of servings the recipe provides.
+     * @param theme        The theme of the recipe.
+     * @param ingredients  A list of ingredients required for the recipe.
+     * @param instructions A list of cooking instructions (directions).
+     * @param notes        Any additional notes related to the recipe.
+     */
+    public Recipe(String name, String category, String author, String prepTime, String cookTime,
+                  String totalTime, String servings, String theme,
+                  List<String> ingredients, List<String> instructions, String notes) {
+        this(name, category, author, prepTime, cookTime, totalTime, servings, theme, ingredients, instructions, notes, "");
+    }
+
+    /**
+     * Creates a recipe with an attached photo.
+     *
+     * @param name         The name of the recipe.
+     * @param category     The category of the recipe.
+     * @param author       The author of the recipe.
+     * @param prepTime     The preparation time of the recipe.
+     * @param cookTime     The cooking time of the recipe.
+     * @param totalTime    The total time required for the recipe.
+     * @param servings     The number of servings the recipe provides.
+     * @param theme        The theme of the recipe.
+     * @param ingredients  A list of ingredients required for the recipe.
+     * @param instructions A list of cooking instructions (directions).
+     * @param notes        Any additional notes related to the recipe.
+     * @param imagePath    The path of the photo of the dish, or an empty string for none.
+     */
+    public Recipe(String name, String category, String author, String prepTime, String cookTime,
+                  String totalTime, String servings, String theme,
+                  List<String> ingredients, List<String> instructions, String notes, String imagePath) {
+        this.name = name;
+        this.category = category;
+        this.author = author;
+        this.prepTime = prepTime;
+        this.cookTime = cookTime;
+        this.totalTime = totalTime;
+        this.servings = servings;
+        this.theme = theme;
+        this.ingredients = Collections.unmodifiableList(new ArrayList<>(ingredients));
+        this.instructions = Collections.unmodifiableList(new ArrayList<>(instructions));
+        this.notes = notes == null ? "" : notes;
+        this.imagePath = imagePath == null ? "" : imagePath;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getPrepTime() {
+        return prepTime;
+    }
+
+    public String getCookTime() {
+        return cookTime;
+    }
+
+    public String getTotalTime() {
+        return totalTime;
+    }
+
+    public String getServings() {
+        return servings;
+    }
+
+    public String getTheme() {
+        return theme;
+    }
+
+    public List<String> getIngredients() {
+        return ingredients;
+    }
+
+    public List<String> getInstructions() {
+        return instructions;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public String getImagePath() {
+        return imagePath;
+    }
+
+    /**
+     * @return True if a photo is attached to the recipe.
+     */
+    public boolean hasImage() {
+        return !imagePath.isEmpty();
+    }
+
+    /**
+     * Computes a stable hash of everything that ends up in the rendered recipe.
+     * Two recipes with the same contents always produce the same hash.
+     *
+     * @return The SHA-256 hash of the recipe contents as a hex string.
+     */
+    public String contentHash() {
+        MessageDigest digest = sha256();
+        update(digest, name);
+        update(digest, category);
+        update(digest, author);
+        update(digest, prepTime);
+        update(digest, cookTime);
+        update(digest, totalTime);
+        update(digest, servings);
+        update(digest, theme);
+        update(digest, Integer.toString(ingredients.size()));
+        for (String ingredient : ingredients) {
+            update(digest, ingredient);
+        }
+        update(digest, Integer.toString(instructions.size()));
+        for (String instruction : instructions) {
+            update(digest, instruction);
+        }
+        update(digest, notes);
+        // A replaced or edited photo file changes its size or modification time
+        if (hasImage()) {
+            File image = new File(imagePath);
+            update(digest, image.getAbsolutePath() + "|" + image.length() + "|" + image.lastModified());
+        }
+        return toHex(digest.digest());
+    }
+
+    /**
+     * @return A new SHA-256 message digest.
+     */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java runtime is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a length-prefixed string to a digest so that field boundaries cannot be confused.
+     *
+     * @param digest The digest to update.
+     * @param value  The value to add.
+     */
+    static void update(MessageDigest digest, String value) {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        digest.update(new byte[] {(byte) (length >>> 24), (byte) (length >>> 16), (byte) (length >>> 8), (byte) length});
+        digest.update(bytes);
+    }
+
+    /**
+     * @param bytes The bytes to format.
+     * @return The bytes as a lowercase hex string.
+     */
+    static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,326 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * RecipeDeduplicator finds recipes that are exact or slightly edited copies of each other.
+ * Each recipe is reduced to a MinHash signature over its normalized ingredients and instruction phrases,
+ * and the signatures are indexed with locality-sensitive hashing (LSH) so a lookup only compares
+ * the recipe against the few stored recipes that share a signature band with it.
+ */
+public class RecipeDeduplicator {
+
+    /** Estimated similarity at or above which two recipes are reported as duplicates. */
+    public static final double DEFAULT_THRESHOLD = 0.7;
+
+    // 32 bands of 4 rows put the LSH candidate threshold at about (1/32)^(1/4) = 0.42, well below the
+    // default threshold: a pair with similarity 0.7 shares a band with probability 1 - (1 - 0.7^4)^32 > 0.999
+    private static final int BANDS = 32;
+    private static final int ROWS_PER_BAND = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS_PER_BAND;
+
+    // Length of the word sequences taken from the instructions
+    private static final int INSTRUCTION_SHINGLE_WORDS = 3;
+
+    private static final long[] SEEDS = new long[SIGNATURE_SIZE];
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            seed = mix64(seed + 0x9E3779B97F4A7C15L);
+            SEEDS[i] = seed;
+        }
+    }
+
+    private final double threshold;
+    private final Map<Long, int[]> signatures = new HashMap<>();
+    private final List<Map<Long, List<Long>>> bandBuckets = new ArrayList<>(BANDS);
+
+    /**
+     * Creates a deduplicator using the default similarity threshold.
+     */
+    public RecipeDeduplicator() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a deduplicator with a custom similarity threshold.
+     *
+     * @param threshold The estimated similarity, between 0 and 1, at which recipes count as duplicates.
+     */
+    public RecipeDeduplicator(double threshold) {
+        this.threshold = threshold;
+        for (int i = 0; i < BANDS; i++) {
+            bandBuckets.add(new HashMap<>());
+        }
+    }
+
+    /**
+     * Builds an index over every recipe in a store.
+     *
+     * @param store The store to index.
+     * @return The populated deduplicator.
+     */
+    public static RecipeDeduplicator forStore(RecipeStore store) {
+        RecipeDeduplicator deduplicator = new RecipeDeduplicator();
+        for (Map.Entry<Long, Recipe> entry : store.getAll().entrySet()) {
+            deduplicator.add(entry.getKey(), entry.getValue());
+        }
+        return deduplicator;
+    }
+
+    /**
+     * Adds or replaces a recipe in the index.
+     *
+     * @param id     The id of the recipe in the store.
+     * @param recipe The recipe to index.
+     */
+    public void add(long id, Recipe recipe) {
+        remove(id);
+        int[] signature = signature(recipe);
+        if (signature == null) {
+            return;
+        }
+        signatures.put(id, signature);
+        for (int band = 0; band < BANDS; band++) {
+            bandBuckets.get(band).computeIfAbsent(bandKey(signature, band), key -> new ArrayList<>(1)).add(id);
+        }
+    }
+
+    /**
+     * Removes a recipe from the index.
+     *
+     * @param id The id of the recipe to remove.
+     */
+    public void remove(long id) {
+        int[] signature = signatures.remove(id);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            Map<Long, List<Long>> buckets = bandBuckets.get(band);
+            long key = bandKey(signature, band);
+            List<Long> bucket = buckets.get(key);
+            if (bucket != null) {
+                bucket.remove(id);
+                if (bucket.isEmpty()) {
+                    buckets.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds indexed recipes that are likely duplicates of the given recipe.
+     *
+     * @param recipe    The recipe being saved or imported.
+     * @param excludeId The id of the recipe itself if it is already indexed, or -1.
+     * @return The matches, most similar first.
+     */
+    public List<Match> findDuplicates(Recipe recipe, long excludeId) {
+        int[] signature = signature(recipe);
+        if (signature == null) {
+            return new ArrayList<>();
+        }
+        return findDuplicates(signature, excludeId, Long.MIN_VALUE);
+    }
+
+    /**
+     * Lists every pair of indexed recipes that are likely duplicates of each other.
+     *
+     * @return The duplicate pairs, most similar first.
+     */
+    public List<Match> report() {
+        List<Match> pairs = new ArrayList<>();
+        for (Map.Entry<Long, int[]> entry : signatures.entrySet()) {
+            // Only look at candidates with a higher id so each pair is reported once
+            for (Match match : findDuplicates(entry.getValue(), entry.getKey(), entry.getKey())) {
+                pairs.add(new Match(entry.getKey(), match.getDuplicateId(), match.getSimilarity()));
+            }
+        }
+        pairs.sort((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()));
+        return pairs;
+    }
+
+    private List<Match> findDuplicates(int[] signature, long excludeId, long minId) {
+        Set<Long> candidates = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            List<Long> bucket = bandBuckets.get(band).get(bandKey(signature, band));
+            if (bucket != null) {
+                candidates.addAll(bucket);
+            }
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (long candidateId : candidates) {
+            if (candidateId == excludeId || candidateId <= minId) {
+                continue;
+            }
+            double similarity = similarity(signature, signatures.get(candidateId));
+            if (similarity >= threshold) {
+                matches.add(new Match(excludeId, candidateId, similarity));
+            }
+        }
+        matches.sort((a, b) -> Double.compare(b.getSimilarity(), a.getSimilarity()));
+        return matches;
+    }
+
+    /**
+     * Computes the MinHash signature of a recipe.
+     *
+     * @param recipe The recipe to sign.
+     * @return The signature, or null if the recipe has no ingredients or instructions to compare.
+     */
+    static int[] signature(Recipe recipe) {
+        Set<String> shingles = shingles(recipe);
+        if (shingles.isEmpty()) {
+            return null;
+        }
+
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (String shingle : shingles) {
+            long base = fnv64(shingle);
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int hash = (int) mix64(base ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    // Fraction of matching signature slots, an estimate of the Jaccard similarity of the shingle sets
+    private static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / SIGNATURE_SIZE;
+    }
+
+    // Each ingredient is one shingle, instructions contribute overlapping word sequences
+    private static Set<String> shingles(Recipe recipe) {
+        Set<String> shingles = new HashSet<>();
+        for (String ingredient : recipe.getIngredients()) {
+            String normalized = normalize(ingredient);
+            if (!normalized.isEmpty()) {
+                shingles.add("i:" + normalized);
+            }
+        }
+
+        List<String> words = new ArrayList<>();
+        for (String instruction : recipe.getInstructions()) {
+            String normalized = normalize(instruction);
+            if (!normalized.isEmpty()) {
+                words.addAll(Arrays.asList(normalized.split(" ")));
+            }
+        }
+        if (words.size() < INSTRUCTION_SHINGLE_WORDS) {
+            if (!words.isEmpty()) {
+                shingles.add("s:" + String.join(" ", words));
+            }
+        } else {
+            for (int i = 0; i + INSTRUCTION_SHINGLE_WORDS <= words.size(); i++) {
+                shingles.add("s:" + String.join(" ", words.subList(i, i + INSTRUCTION_SHINGLE_WORDS)));
+            }
+        }
+        return shingles;
+    }
+
+    // Lowercases, strips accents, and drops quantities and punctuation so "2 Cups flour." matches "3 cups flour"
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        return decomposed.replaceAll("\\p{M}+", "")
+                .replaceAll("[^\\p{L}]+", " ")
+                .trim();
+    }
+
+    private static long bandKey(int[] signature, int band) {
+        long key = 0xCBF29CE484222325L ^ band;
+        int start = band * ROWS_PER_BAND;
+        for (int i = start; i < start + ROWS_PER_BAND; i++) {
+            key = mix64(key ^ signature[i]);
+        }
+        return key;
+    }
+
+    private static long fnv64(String text) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * A recipe that is likely a duplicate of another one.
+     */
+    public static class Match {
+        private final long recipeId;
+        private final long duplicateId;
+        private final double similarity;
+
+        Match(long recipeId, long duplicateId, double similarity) {
+            this.recipeId = recipeId;
+            this.duplicateId = duplicateId;
+            this.similarity = similarity;
+        }
+
+        public long getRecipeId() {
+            return recipeId;
+        }
+
+        public long getDuplicateId() {
+            return duplicateId;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+
+    /**
+     * Prints a duplicate report for a whole store.
+     *
+     * @param args Optionally the store directory; the default store is used otherwise.
+     * @throws IOException If the store cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        Path directory = args.length > 0 ? Paths.get(args[0]) : RecipeStore.DEFAULT_DIRECTORY;
+        RecipeStore store = RecipeStore.open(directory);
+        List<Match> pairs = forStore(store).report();
+
+        System.out.println(store.size() + " recipes, " + pairs.size() + " likely duplicate pair(s)");
+        for (Match pair : pairs) {
+            Recipe recipe = store.get(pair.getRecipeId());
+            Recipe duplicate = store.get(pair.getDuplicateId());
+            System.out.printf(Locale.ROOT, "%3.0f%%  #%d %s (%s)  ~  #%d %s (%s)%n",
+                    pair.getSimilarity() * 100,
+                    pair.getRecipeId(), recipe.getName(), recipe.getAuthor(),
+                    pair.getDuplicateId(), duplicate.getName(), duplicate.getAuthor());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.recipevault;
+
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.ButtonType;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * RecipeDialog shows the application's message, error and confirmation dialogs.
+ * One pre-styled dialog is kept per dialog type and reused, so showing a message does not
+ * build and style a new dialog each time.
+ */
+public class RecipeDialog {
+
+    private static final Map<AlertType, Alert> alerts = new EnumMap<>(AlertType.class);
+
+    private RecipeDialog() {
+    }
+
+    /**
+     * Shows an information dialog and waits until it is closed.
+     *
+     * @param message The message to be displayed.
+     */
+    public static void showMessage(String message) {
+        show(AlertType.INFORMATION, "Recipe Vault", message);
+    }
+
+    /**
+     * Shows an error dialog and waits until it is closed.
+     *
+     * @param message The message to be displayed.
+     */
+    public static void showError(String message) {
+        show(AlertType.ERROR, "Error", message);
+    }
+
+    /**
+     * Asks the user to confirm an action.
+     *
+     * @param message The question to be displayed.
+     * @return True if the user chose OK.
+     */
+    public static boolean confirm(String message) {
+        return show(AlertType.CONFIRMATION, "Recipe Vault", message) == ButtonType.OK;
+    }
+
+    private static ButtonType show(AlertType type, String title, String message) {
+        Alert alert = alerts.computeIfAbsent(type, RecipeDialog::createAlert);
+        alert.setTitle(title);
+        alert.setContentText(message);
+        return alert.showAndWait().orElse(ButtonType.CANCEL);
+    }
+
+    private static Alert createAlert(AlertType type) {
+        Alert alert = new Alert(type);
+        alert.setHeaderText(null);
+        ThemeManager.apply(alert.getDialogPane(), "rv-dialog");
+        return alert;
+    }
+}
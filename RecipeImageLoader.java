@@ -0,0 +1,448 @@
+package org.example.recipevault;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * RecipeImageLoader decodes recipe photos on a background pool.
+ * Photos are read with source subsampling, so a large phone photo is never held in memory at full resolution,
+ * and only downscaled thumbnails and print-sized JPEGs are kept in the memory and disk caches.
+ * Photos are turned upright according to their EXIF orientation, as phone cameras store portrait shots
+ * as landscape pixels with an orientation tag.
+ */
+public class RecipeImageLoader {
+
+    /** Resolution photos are prepared for when added to a recipe PDF. */
+    public static final int PRINT_DPI = 300;
+
+    /** Largest size of the photo on the printed page, in points (6.5 x 8 inches). */
+    public static final float PHOTO_WIDTH_POINTS = 468;
+    public static final float PHOTO_HEIGHT_POINTS = 576;
+
+    /** Largest width and height of the thumbnails shown in the form, in pixels. */
+    public static final int THUMBNAIL_SIZE = 160;
+
+    private static final Path THUMBNAIL_DIRECTORY = RecipeStore.DEFAULT_DIRECTORY.resolveSibling("thumbnails");
+    private static final int MAX_MEMORY_THUMBNAILS = 64;
+    private static final int MAX_DISK_THUMBNAILS = 1000;
+    private static final int MAX_PRINT_IMAGES = 8;
+    private static final float JPEG_QUALITY = 0.9f;
+    // Part of the thumbnail file names, so thumbnails cached before photos were turned upright are not reused
+    private static final String THUMBNAIL_VERSION = "2";
+
+    private static final ExecutorService decodePool = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "recipe-image-decoder");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private static final Map<String, Image> thumbnails = Collections.synchronizedMap(lruMap(MAX_MEMORY_THUMBNAILS));
+    private static final Map<String, Future<PrintImage>> printImages = Collections.synchronizedMap(lruMap(MAX_PRINT_IMAGES));
+
+    private RecipeImageLoader() {
+    }
+
+    /**
+     * Loads the thumbnail of a photo in the background. The callback runs on the JavaFX thread,
+     * with null if the photo cannot be read.
+     *
+     * @param file     The photo file.
+     * @param onLoaded Receives the thumbnail.
+     */
+    public static void loadThumbnail(File file, Consumer<Image> onLoaded) {
+        String key = cacheKey(file);
+        Image cached = thumbnails.get(key);
+        if (cached != null) {
+            onLoaded.accept(cached);
+            return;
+        }
+
+        decodePool.execute(() -> {
+            Image thumbnail = null;
+            try {
+                Path thumbnailFile = THUMBNAIL_DIRECTORY.resolve(Recipe.toHex(Recipe.sha256().digest(
+                        (key + "|" + THUMBNAIL_VERSION).getBytes(StandardCharsets.UTF_8))) + ".jpg");
+                if (!Files.isRegularFile(thumbnailFile)) {
+                    BufferedImage image = decode(file, THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+                    Files.createDirectories(THUMBNAIL_DIRECTORY);
+                    writeJpeg(image, thumbnailFile.toFile());
+                    trimDiskCache();
+                }
+                thumbnail = new Image(thumbnailFile.toUri().toString());
+                if (thumbnail.isError()) {
+                    thumbnail = null;
+                } else {
+                    thumbnails.put(key, thumbnail);
+                }
+            } catch (IOException e) {
+                thumbnail = null;
+            }
+
+            Image result = thumbnail;
+            Platform.runLater(() -> onLoaded.accept(result));
+        });
+    }
+
+    /**
+     * Starts preparing a photo for printing in the background, or returns the preparation already started.
+     * Upright JPEG photos that already fit the print size are passed through unchanged, anything else is
+     * downscaled to {@link #PRINT_DPI}, turned upright and encoded as JPEG.
+     *
+     * @param file The photo file.
+     * @return The print-ready photo.
+     */
+    public static Future<PrintImage> preparePrintImage(File file) {
+        return printImages.computeIfAbsent(cacheKey(file), key -> decodePool.submit(() -> {
+            int maxWidth = Math.round(PHOTO_WIDTH_POINTS / 72 * PRINT_DPI);
+            int maxHeight = Math.round(PHOTO_HEIGHT_POINTS / 72 * PRINT_DPI);
+
+            ImageInfo info = readInfo(file);
+            if (info.jpeg && info.orientation == 1 && info.width <= maxWidth && info.height <= maxHeight) {
+                return new PrintImage(Files.readAllBytes(file.toPath()), info.width, info.height);
+            }
+
+            BufferedImage image = decode(file, maxWidth, maxHeight);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            writeJpeg(image, output);
+            return new PrintImage(output.toByteArray(), image.getWidth(), image.getHeight());
+        }));
+    }
+
+    /**
+     * Appends a page to the document holding the recipe photo, centered and scaled to fit.
+     * The prepared JPEG is embedded as is, without decoding it again.
+     *
+     * @param document The recipe document.
+     * @param file     The photo file.
+     * @throws IOException If the photo cannot be read or embedded.
+     */
+    public static void addPhotoPage(PDDocument document, File file) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException("Photo not found: " + file.getName());
+        }
+
+        PrintImage printImage;
+        try {
+            printImage = preparePrintImage(file).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while preparing the photo", e);
+        } catch (ExecutionException e) {
+            printImages.remove(cacheKey(file));
+            throw new IOException("Could not read the photo: " + file.getName(), e.getCause());
+        }
+
+        PDRectangle mediaBox = document.getNumberOfPages() > 0 ? document.getPage(0).getMediaBox() : PDRectangle.LETTER;
+        PDPage page = new PDPage(mediaBox);
+        document.addPage(page);
+
+        PDImageXObject image = JPEGFactory.createFromByteArray(document, printImage.jpeg);
+        float scale = Math.min(PHOTO_WIDTH_POINTS / printImage.width, PHOTO_HEIGHT_POINTS / printImage.height);
+        float width = printImage.width * scale;
+        float height = printImage.height * scale;
+        float x = mediaBox.getLowerLeftX() + (mediaBox.getWidth() - width) / 2;
+        float y = mediaBox.getLowerLeftY() + (mediaBox.getHeight() - height) / 2;
+
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawImage(image, x, y, width, height);
+        }
+    }
+
+    // Photos are identified by path, size and modification time, so an edited photo is decoded again
+    private static String cacheKey(File file) {
+        return file.getAbsolutePath() + "|" + file.length() + "|" + file.lastModified();
+    }
+
+    private static ImageInfo readInfo(File file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = reader(input, file);
+            try {
+                reader.setInput(input, true, true);
+                boolean jpeg = "jpeg".equalsIgnoreCase(reader.getFormatName());
+                return new ImageInfo(jpeg, reader.getWidth(0), reader.getHeight(0), jpeg ? orientation(file) : 1);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Decodes a photo scaled down to fit within the given size and turned upright. The decoder skips rows
+     * and columns it does not need, so the full resolution image is never created.
+     */
+    private static BufferedImage decode(File file, int maxWidth, int maxHeight) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file)) {
+            ImageReader reader = reader(input, file);
+            try {
+                reader.setInput(input, true, true);
+                int orientation = "jpeg".equalsIgnoreCase(reader.getFormatName()) ? orientation(file) : 1;
+                if (orientation >= 5) {
+                    // Stored sideways: the stored width ends up as the height
+                    int swap = maxWidth;
+                    maxWidth = maxHeight;
+                    maxHeight = swap;
+                }
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                double scale = Math.min(1.0, Math.min((double) maxWidth / width, (double) maxHeight / height));
+                int targetWidth = Math.max(1, (int) Math.round(width * scale));
+                int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.min(width / targetWidth, height / targetHeight));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+
+                // Final smooth resize onto a white RGB canvas, which also drops any transparency for JPEG
+                BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = scaled.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, targetWidth, targetHeight);
+                    graphics.drawImage(decoded, 0, 0, targetWidth, targetHeight, null);
+                } finally {
+                    graphics.dispose();
+                }
+                return orient(scaled, orientation);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // The EXIF orientation of a JPEG, from 1 (upright) to 8, or 1 if it has none. The marker segments are read
+    // directly: the JDK's JPEG metadata rejects files whose Exif segment comes before the JFIF one
+    private static int orientation(File file) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (input.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marker = input.readUnsignedShort();
+                // Metadata comes before the start of the scan
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA || marker == 0xFFD9) {
+                    return 1;
+                }
+                int length = input.readUnsignedShort() - 2;
+                if (length < 0) {
+                    return 1;
+                }
+                byte[] segment = new byte[length];
+                input.readFully(segment);
+                if (marker == 0xFFE1) {
+                    int orientation = exifOrientation(segment);
+                    if (orientation != 0) {
+                        return orientation;
+                    }
+                }
+            }
+        } catch (EOFException e) {
+            return 1;
+        }
+    }
+
+    // The Orientation tag (0x0112) of the first IFD of an Exif APP1 segment, or 0 if the segment has none
+    static int exifOrientation(byte[] app1) {
+        byte[] header = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+        if (app1.length < header.length + 8) {
+            return 0;
+        }
+        for (int i = 0; i < header.length; i++) {
+            if (app1[i] != header[i]) {
+                return 0;
+            }
+        }
+        int tiff = header.length;
+        boolean littleEndian = app1[tiff] == 'I' && app1[tiff + 1] == 'I';
+        long ifd = tiff + (readUnsigned(app1, tiff + 4, 4, littleEndian) & 0xFFFFFFFFL);
+        if (ifd + 2 > app1.length) {
+            return 0;
+        }
+        int entries = (int) readUnsigned(app1, (int) ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = (int) ifd + 2 + i * 12;
+            if (entry + 12 > app1.length) {
+                break;
+            }
+            if (readUnsigned(app1, entry, 2, littleEndian) == 0x0112) {
+                int orientation = (int) readUnsigned(app1, entry + 8, 2, littleEndian);
+                return orientation >= 1 && orientation <= 8 ? orientation : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static long readUnsigned(byte[] data, int offset, int length, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            int b = data[offset + (littleEndian ? length - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    // Turns an image stored with the given EXIF orientation upright
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        int w = image.getWidth();
+        int h = image.getHeight();
+        AffineTransform transform;
+        switch (orientation) {
+            case 2:
+                transform = new AffineTransform(-1, 0, 0, 1, w, 0);
+                break;
+            case 3:
+                transform = new AffineTransform(-1, 0, 0, -1, w, h);
+                break;
+            case 4:
+                transform = new AffineTransform(1, 0, 0, -1, 0, h);
+                break;
+            case 5:
+                transform = new AffineTransform(0, 1, 1, 0, 0, 0);
+                break;
+            case 6:
+                transform = new AffineTransform(0, 1, -1, 0, h, 0);
+                break;
+            case 7:
+                transform = new AffineTransform(0, -1, -1, 0, h, w);
+                break;
+            case 8:
+                transform = new AffineTransform(0, -1, 1, 0, 0, w);
+                break;
+            default:
+                return image;
+        }
+        boolean sideways = orientation >= 5;
+        BufferedImage upright = new BufferedImage(sideways ? h : w, sideways ? w : h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = upright.createGraphics();
+        try {
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return upright;
+    }
+
+    private static ImageReader reader(ImageInputStream input, File file) throws IOException {
+        if (input == null) {
+            throw new FileNotFoundException("Photo not found: " + file.getName());
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            throw new IOException("Unsupported image format: " + file.getName());
+        }
+        return readers.next();
+    }
+
+    private static void writeJpeg(BufferedImage image, Object output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Keeps the thumbnail folder bounded by deleting the least recently written thumbnails
+    private static synchronized void trimDiskCache() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(THUMBNAIL_DIRECTORY, "*.jpg")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        if (files.size() <= MAX_DISK_THUMBNAILS) {
+            return;
+        }
+        files.sort((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()));
+        for (int i = 0; i < files.size() - MAX_DISK_THUMBNAILS; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private static <V> LinkedHashMap<String, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<String, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    private static class ImageInfo {
+        final boolean jpeg;
+        final int width;
+        final int height;
+        final int orientation;
+
+        ImageInfo(boolean jpeg, int width, int height, int orientation) {
+            this.jpeg = jpeg;
+            this.width = width;
+            this.height = height;
+            this.orientation = orientation;
+        }
+    }
+
+    /**
+     * A photo encoded as JPEG at print resolution.
+     */
+    public static class PrintImage {
+        private final byte[] jpeg;
+        private final int width;
+        private final int height;
+
+        PrintImage(byte[] jpeg, int width, int height) {
+            this.jpeg = jpeg;
+            this.width = width;
+            this.height = height;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package org.example.recipevault;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.DragEvent;
+import javafx.scene.input.Dragboard;
+import javafx.scene.input.TransferMode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RecipeListEditor wraps the ListView used for ingredients and instructions.
+ * It keeps a hash-backed index of the list entries so duplicate checks do not scan the list,
+ * supports reordering entries by drag and drop, and inserts multi-line pastes as a single change.
+ */
+public class RecipeListEditor {
+
+    // Fixed row height lets the virtualized ListView skip measuring every cell
+    private static final double CELL_HEIGHT = 26;
+
+    private final ObservableList<String> items;
+    private final Set<String> index = new HashSet<>();
+    private final ListView<String> listView;
+    private final int maxItems;
+    private final int maxLength;
+
+    /**
+     * Creates an editor over the given list.
+     *
+     * @param items     The observable list holding the entries.
+     * @param maxItems  The maximum number of entries the list can hold.
+     * @param maxLength The maximum number of characters allowed per entry.
+     */
+    public RecipeListEditor(ObservableList<String> items, int maxItems, int maxLength) {
+        this.items = items;
+        this.maxItems = maxItems;
+        this.maxLength = maxLength;
+        this.index.addAll(items);
+
+        // Keep the index in step with every change to the list, including clear() and setAll()
+        items.addListener((ListChangeListener<String>) change -> {
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    index.removeAll(change.getRemoved());
+                }
+                if (change.wasAdded()) {
+                    index.addAll(change.getAddedSubList());
+                }
+            }
+        });
+
+        listView = new ListView<>(items);
+        listView.setFixedCellSize(CELL_HEIGHT);
+        listView.setCellFactory(view -> createReorderableCell());
+    }
+
+    /**
+     * @return The ListView displaying the entries.
+     */
+    public ListView<String> getListView() {
+        return listView;
+    }
+
+    /**
+     * @param entry The entry to look up.
+     * @return True if the list already holds the entry.
+     */
+    public boolean contains(String entry) {
+        return index.contains(entry);
+    }
+
+    /**
+     * @return True if no more entries can be added.
+     */
+    public boolean isFull() {
+        return items.size() >= maxItems;
+    }
+
+    /**
+     * @return The maximum number of entries the list can hold.
+     */
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Adds a single entry if it is not empty, not a duplicate and the list is not full.
+     *
+     * @param entry The entry to add.
+     * @return True if the entry was added.
+     */
+    public boolean add(String entry) {
+        if (entry.isEmpty() || isFull() || index.contains(entry)) {
+            return false;
+        }
+        items.add(entry);
+        return true;
+    }
+
+    /**
+     * Removes the entry currently selected in the ListView.
+     *
+     * @return The removed entry, or null if nothing was selected.
+     */
+    public String removeSelected() {
+        int selectedIndex = listView.getSelectionModel().getSelectedIndex();
+        if (selectedIndex < 0) {
+            return null;
+        }
+        return items.remove(selectedIndex);
+    }
+
+    /**
+     * Parses a block of pasted text, one entry per line, and appends all accepted lines in one change.
+     * Leading bullets and step numbers ("-", "*", "1.", "2)") are stripped from each line.
+     *
+     * @param text The pasted text.
+     * @return A summary of how many lines were added or skipped.
+     */
+    public PasteResult addLines(String text) {
+        PasteResult result = new PasteResult();
+        if (text == null) {
+            return result;
+        }
+
+        List<String> accepted = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int room = maxItems - items.size();
+
+        for (String line : text.split("\\R")) {
+            String entry = stripListMarker(line.trim());
+            if (entry.isEmpty()) {
+                continue;
+            }
+            if (entry.length() > maxLength) {
+                result.tooLong++;
+            } else if (index.contains(entry) || !seen.add(entry)) {
+                result.duplicates++;
+            } else if (accepted.size() >= room) {
+                result.overLimit++;
+            } else {
+                accepted.add(entry);
+            }
+        }
+
+        // A single addAll fires one change event, so the ListView relayouts once per paste
+        if (!accepted.isEmpty()) {
+            items.addAll(accepted);
+        }
+        result.added = accepted.size();
+        return result;
+    }
+
+    // Moves an entry to a new position using a single change event
+    private void move(int from, int to) {
+        if (from == to || from < 0 || from >= items.size()) {
+            return;
+        }
+        List<String> reordered = new ArrayList<>(items);
+        String entry = reordered.remove(from);
+        to = Math.min(to, reordered.size());
+        reordered.add(to, entry);
+        items.setAll(reordered);
+        listView.getSelectionModel().clearAndSelect(to);
+    }
+
+    // Strips a leading bullet or step number from a pasted line
+    private static String stripListMarker(String line) {
+        return line.replaceFirst("^(?:[-*\\u2022]+|\\d+[.)])\\s*", "").trim();
+    }
+
+    // Creates a list cell that can be dragged onto another cell to reorder the list
+    private ListCell<String> createReorderableCell() {
+        ListCell<String> cell = new ListCell<String>() {
+            @Override
+            protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || item == null ? null : item);
+            }
+        };
+
+        cell.setOnDragDetected(event -> {
+            if (cell.isEmpty()) {
+                return;
+            }
+            Dragboard dragboard = cell.startDragAndDrop(TransferMode.MOVE);
+            ClipboardContent content = new ClipboardContent();
+            content.putString(Integer.toString(cell.getIndex()));
+            dragboard.setContent(content);
+            event.consume();
+        });
+
+        cell.setOnDragOver(event -> {
+            if (event.getGestureSource() != cell && draggedIndex(event) >= 0) {
+                event.acceptTransferModes(TransferMode.MOVE);
+            }
+            event.consume();
+        });
+
+        cell.setOnDragDropped(event -> {
+            boolean moved = false;
+            int from = draggedIndex(event);
+            if (from >= 0) {
+                int to = cell.isEmpty() ? items.size() - 1 : cell.getIndex();
+                move(from, to);
+                moved = true;
+            }
+            event.setDropCompleted(moved);
+            event.consume();
+        });
+
+        return cell;
+    }
+
+    // The index of the entry being dragged, or -1 unless the drag started on a cell of this list.
+    // Text dragged in from another list or application is not taken for an index.
+    private int draggedIndex(DragEvent event) {
+        Object source = event.getGestureSource();
+        if (!(source instanceof ListCell) || ((ListCell<?>) source).getListView() != listView) {
+            return -1;
+        }
+        ListCell<?> sourceCell = (ListCell<?>) source;
+        return sourceCell.isEmpty() ? -1 : sourceCell.getIndex();
+    }
+
+    /**
+     * Summary of a bulk paste.
+     */
+    public static class PasteResult {
+        public int added;
+        public int duplicates;
+        public int tooLong;
+        public int overLimit;
+
+        /**
+         * @return The number of lines that were not added.
+         */
+        public int skipped() {
+            return duplicates + tooLong + overLimit;
+        }
+    }
+}
@@ -2,20 +2,29 @@ package org.example.recipevault;
 
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
-import javafx.scene.control.Alert;
-import javafx.scene.control.Alert.AlertType;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
 import org.apache.pdfbox.pdmodel.interactive.form.PDField;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * RecipePDFWriter is a utility class responsible for filling out an existing PDF template with recipe details.
  * It uses Apache PDFBox to load the template, fill in the form fields, and save the new recipe PDF.
+ * Rendered PDFs are kept in a {@link RecipeRenderCache} so saving an unchanged recipe again skips the fill.
  */
 public class RecipePDFWriter extends Main {
 
@@ -23,6 +32,13 @@ public class RecipePDFWriter extends Main {
     private static final int MAX_INGREDIENTS = 15;
     private static final int MAX_DIRECTIONS = 25;
 
+    // Version of the fill logic, part of the render cache key so that output changes invalidate cached PDFs
+    private static final String RENDER_VERSION = "3";
+
+    // Template file contents and their hashes, loaded once per template
+    private static final Map<String, byte[]> templateBytes = new ConcurrentHashMap<>();
+    private static final Map<String, String> templateHashes = new ConcurrentHashMap<>();
+
     /**
      * Fills out the recipe details in an existing PDF template and saves the filled PDF.
      *
@@ -41,109 +57,301 @@ public class RecipePDFWriter extends Main {
     public static void saveRecipeToPDF(String recipeName, String category, String author, String prepTime,
                                        String cookTime, String totalTime, String servings, String theme,
                                        List<String> ingredients, List<String> instructions, String notes) {
+        saveRecipeToPDF(new Recipe(recipeName, category, author, prepTime, cookTime, totalTime, servings, theme,
+                ingredients, instructions, notes));
+    }
+
+    /**
+     * Fills out the recipe details in the template for its theme and saves the filled PDF
+     * to a file chosen by the user.
+     *
+     * @param recipe The recipe to save.
+     */
+    public static void saveRecipeToPDF(Recipe recipe) {
 
         // Validation for required fields
-        if (recipeName.isEmpty() || category.isEmpty() || author.isEmpty() || prepTime.isEmpty() ||
-                cookTime.isEmpty() || totalTime.isEmpty() || servings.isEmpty()) {
+        if (recipe.getName().isEmpty() || recipe.getCategory().isEmpty() || recipe.getAuthor().isEmpty() ||
+                recipe.getPrepTime().isEmpty() || recipe.getCookTime().isEmpty() || recipe.getTotalTime().isEmpty() ||
+                recipe.getServings().isEmpty()) {
             showErrorDialog("All fields except Notes must be filled.");
             return;
         }
 
         // Validation for maximum number of ingredients
-        if (ingredients.size() > MAX_INGREDIENTS) {
+        if (recipe.getIngredients().size() > MAX_INGREDIENTS) {
             showErrorDialog("The number of ingredients cannot exceed " + MAX_INGREDIENTS + ".");
             return;
         }
 
         // Validation for maximum number of directions
-        if (instructions.size() > MAX_DIRECTIONS) {
+        if (recipe.getInstructions().size() > MAX_DIRECTIONS) {
             showErrorDialog("The number of directions cannot exceed " + MAX_DIRECTIONS + ".");
             return;
         }
 
-        // Select template file based on theme
-        String templateFileName;
-        switch (theme.toLowerCase()) {
-            case "summer":
-                templateFileName = "Summer_Template.pdf";
-                break;
-            case "winter":
-                templateFileName = "Winter_Template.pdf";
-                break;
-            case "spring":
-                templateFileName = "Spring_Template.pdf";
-                break;
-            case "fall":
-                templateFileName = "Fall_Template.pdf";
-                break;
-            default:
-                showErrorDialog("Invalid theme. Please choose from Summer, Winter, Spring, or Fall.");
-                return;
+        if (templateFileName(recipe.getTheme()) == null) {
+            showErrorDialog("Invalid theme. Please choose from Summer, Winter, Spring, or Fall.");
+            return;
         }
 
-        InputStream inputStream = RecipePDFWriter.class.getResourceAsStream("/template/" + templateFileName);
+        // Save the filled-out PDF
+        FileChooser saveFileChooser = new FileChooser();
+        saveFileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF Files", "*.pdf"));
+        saveFileChooser.setTitle("Save Recipe");
+        saveFileChooser.setInitialFileName(recipe.getName() + "_filled.pdf");
+        File saveFile = saveFileChooser.showSaveDialog(new Stage());
 
-        File templateFile = new File("G:/UMGC/Computer Science Capstone/intellij(java)/RecipeVault/src/main/resources/template/" + templateFileName);
-        if (!templateFile.exists()) {
-            showErrorDialog("Template file not found: " + templateFileName);
+        if (saveFile == null) {
             return;
         }
 
-        if (inputStream == null) {
-            showErrorDialog("Template file not found in resources: " + templateFileName);
-            return;
+        try {
+            if (writeRecipePDF(recipe, saveFile.toPath())) {
+                showInfoDialog("Recipe saved successfully!");
+            } else {
+                showErrorDialog("No form fields found in the PDF template.");
+            }
+        } catch (FileNotFoundException e) {
+            showErrorDialog(e.getMessage());
+        } catch (FormFillException e) {
+            showErrorDialog("Error filling form field: " + String.join(", ", e.getFieldNames()));
+        } catch (IOException e) {
+            showErrorDialog("Error loading or saving the PDF template.");
         }
+    }
 
+    /**
+     * Writes the filled PDF of a recipe to a file. If the same recipe was already rendered with the same
+     * template, the PDF is copied from the render cache instead of filling the template again.
+     * The cache is only a shortcut: when it cannot be opened, read or written, the PDF is rendered and saved anyway.
+     *
+     * @param recipe The recipe to write.
+     * @param target The file to write.
+     * @return False if the template has no form fields to fill.
+     * @throws IOException If the template cannot be loaded, a field cannot be filled ({@link FormFillException})
+     *                     or the PDF cannot be written. Nothing is cached in that case.
+     */
+    public static boolean writeRecipePDF(Recipe recipe, Path target) throws IOException {
+        String templateFileName = templateFileName(recipe.getTheme());
+        if (templateFileName == null) {
+            throw new IOException("Invalid theme: " + recipe.getTheme());
+        }
 
-        try (PDDocument document = PDDocument.load(inputStream)) {
+        String key = RecipeRenderCache.key(templateHash(templateFileName), RENDER_VERSION, recipe);
+        RecipeRenderCache cache;
+        try {
+            cache = RecipeRenderCache.getDefault();
+            if (cache.copyTo(key, target)) {
+                return true;
+            }
+        } catch (IOException e) {
+            // No usable cache: render the PDF, and the write below reports a target that cannot be written
+            cache = null;
+        }
+
+        byte[] pdf = renderRecipe(recipe);
+        if (pdf == null) {
+            return false;
+        }
+        Files.write(target, pdf);
+        if (cache != null) {
+            try {
+                cache.put(key, pdf);
+            } catch (IOException e) {
+                // The PDF is saved, it is only not cached
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fills the template for the recipe's theme and returns the resulting PDF.
+     *
+     * @param recipe The recipe to render.
+     * @return The filled PDF, or null if the template has no form fields.
+     * @throws IOException If the template cannot be loaded, a field cannot be filled ({@link FormFillException})
+     *                     or the PDF cannot be written. Nothing is cached in that case.
+     */
+    public static byte[] renderRecipe(Recipe recipe) throws IOException {
+        String templateFileName = templateFileName(recipe.getTheme());
+        if (templateFileName == null) {
+            throw new IOException("Invalid theme: " + recipe.getTheme());
+        }
+
+        try (PDDocument document = PDDocument.load(loadTemplate(templateFileName))) {
             PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm();
+            if (acroForm == null) {
+                return null;
+            }
 
-            if (acroForm != null) {
-                // Fill in the form fields
-                fillFormField(acroForm, "Recipe", recipeName);
-                fillFormField(acroForm, "Author", author);
-                fillFormField(acroForm, "Prep Time", prepTime);
-                fillFormField(acroForm, "Cook Time", cookTime);
-                fillFormField(acroForm, "Total Time", totalTime);
-                fillFormField(acroForm, "Serves", servings);
-                fillFormField(acroForm, "Meal Type", category);
-
-                
-                // Fill in ingredients
-                for (int i = 0; i < ingredients.size(); i++) {
-                    String ingredientField = "Ingredient" + (i + 1);
-                    fillFormField(acroForm, ingredientField, ingredients.get(i));
-                }
-
-                // Fill in directions (steps)
-                for (int i = 0; i < instructions.size(); i++) {
-                    String directionField = "Direction" + (i + 1);
-                    fillFormField(acroForm, directionField, instructions.get(i));
-                }
-
-                // Fill in notes
-                fillFormField(acroForm, "Notes", notes);
-
-                // Save the filled-out PDF
-                FileChooser saveFileChooser = new FileChooser();
-                saveFileChooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("PDF Files", "*.pdf"));
-                saveFileChooser.setTitle("Save Recipe");
-                saveFileChooser.setInitialFileName(recipeName + "_filled.pdf");
-                File saveFile = saveFileChooser.showSaveDialog(new Stage());
-
-
-
-                if (saveFile != null) {
-                    document.save(saveFile);
-                    showInfoDialog("Recipe saved successfully!");
-                }
-            } else {
-                showErrorDialog("No form fields found in the PDF template.");
+            fillForm(document, acroForm, fieldValues(recipe));
+
+            // Add the photo of the dish on its own page
+            if (recipe.hasImage()) {
+                RecipeImageLoader.addPhotoPage(document, new File(recipe.getImagePath()));
             }
-        } catch (IOException e) {
-            showErrorDialog("Error loading or saving the PDF template.");
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    /**
+     * Warms up PDF export ahead of the first save: loads the render cache, reads the template of the
+     * given theme and fills it once with a sample recipe, so PDFBox classes and template fonts are loaded.
+     * Errors are ignored, the first real save reports them.
+     *
+     * @param theme The theme whose template to load.
+     */
+    public static void preload(String theme) {
+        try {
+            RecipeRenderCache.getDefault();
+            if (templateFileName(theme) != null) {
+                templateHash(templateFileName(theme));
+                renderRecipe(new Recipe("Recipe", "Cuisine", "Author", "10 min", "20 min", "30 min", "4", theme,
+                        Collections.singletonList("Ingredient"), Collections.singletonList("Direction"), "Notes"));
+            }
+        } catch (IOException | RuntimeException e) {
+            // Nothing was cached, the first save loads everything itself
+        }
+    }
+
+    /**
+     * Maps the template's form field names to the recipe values that go in them.
+     *
+     * @param recipe The recipe to render.
+     * @return The field values in fill order.
+     */
+    static Map<String, String> fieldValues(Recipe recipe) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("Recipe", recipe.getName());
+        values.put("Author", recipe.getAuthor());
+        values.put("Prep Time", recipe.getPrepTime());
+        values.put("Cook Time", recipe.getCookTime());
+        values.put("Total Time", recipe.getTotalTime());
+        values.put("Serves", recipe.getServings());
+        values.put("Meal Type", recipe.getCategory());
+
+        // Ingredients
+        List<String> ingredients = recipe.getIngredients();
+        for (int i = 0; i < ingredients.size(); i++) {
+            values.put("Ingredient" + (i + 1), ingredients.get(i));
         }
 
+        // Directions (steps)
+        List<String> instructions = recipe.getInstructions();
+        for (int i = 0; i < instructions.size(); i++) {
+            values.put("Direction" + (i + 1), instructions.get(i));
+        }
+
+        values.put("Notes", recipe.getNotes());
+        return values;
+    }
+
+    /**
+     * @return The names of every form field a recipe can fill, in fill order.
+     */
+    static List<String> templateFieldNames() {
+        List<String> names = new ArrayList<>(Arrays.asList("Recipe", "Author", "Prep Time", "Cook Time",
+                "Total Time", "Serves", "Meal Type"));
+        for (int i = 1; i <= MAX_INGREDIENTS; i++) {
+            names.add("Ingredient" + i);
+        }
+        for (int i = 1; i <= MAX_DIRECTIONS; i++) {
+            names.add("Direction" + i);
+        }
+        names.add("Notes");
+        return names;
+    }
+
+    /**
+     * Fills the form fields of a template, switching fields to an embedded Unicode font
+     * where the template font cannot display the text.
+     *
+     * @param document The loaded template.
+     * @param acroForm The form of the template.
+     * @param values   The values to fill in, keyed by field name.
+     * @throws FormFillException If any field could not be filled; the other fields are filled first.
+     * @throws IOException       If a substitute font cannot be embedded.
+     */
+    static void fillForm(PDDocument document, PDAcroForm acroForm, Map<String, String> values) throws IOException {
+        UnicodeFontEmbedder.embedFonts(document, acroForm, values);
+        List<String> failedFields = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String error = fillFormField(acroForm, entry.getKey(), entry.getValue());
+            if (error != null) {
+                failedFields.add(entry.getKey());
+                errors.add(entry.getKey() + ": " + error);
+            }
+        }
+        if (!failedFields.isEmpty()) {
+            throw new FormFillException(failedFields, "Error filling form fields " + String.join("; ", errors));
+        }
+    }
+
+    /**
+     * Selects the template file based on theme.
+     *
+     * @param theme The theme of the recipe.
+     * @return The template file name, or null if the theme is unknown.
+     */
+    static String templateFileName(String theme) {
+        if (theme == null) {
+            return null;
+        }
+        switch (theme.toLowerCase()) {
+            case "summer":
+                return "Summer_Template.pdf";
+            case "winter":
+                return "Winter_Template.pdf";
+            case "spring":
+                return "Spring_Template.pdf";
+            case "fall":
+                return "Fall_Template.pdf";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reads a template from the resources, keeping its contents in memory for later renders.
+     *
+     * @param templateFileName The template file name.
+     * @return The template file contents.
+     * @throws IOException If the template is missing or cannot be read.
+     */
+    static byte[] loadTemplate(String templateFileName) throws IOException {
+        byte[] bytes = templateBytes.get(templateFileName);
+        if (bytes != null) {
+            return bytes;
+        }
+
+        try (InputStream inputStream = RecipePDFWriter.class.getResourceAsStream("/template/" + templateFileName)) {
+            if (inputStream == null) {
+                throw new FileNotFoundException("Template file not found in resources: " + templateFileName);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            bytes = output.toByteArray();
+        }
+        templateBytes.put(templateFileName, bytes);
+        return bytes;
+    }
+
+    // Hash of the template contents, so that replacing a template file invalidates cached renders
+    static String templateHash(String templateFileName) throws IOException {
+        String hash = templateHashes.get(templateFileName);
+        if (hash == null) {
+            hash = Recipe.toHex(Recipe.sha256().digest(loadTemplate(templateFileName)));
+            templateHashes.put(templateFileName, hash);
+        }
+        return hash;
     }
 
     /**
@@ -152,15 +360,18 @@ public class RecipePDFWriter extends Main {
      * @param acroForm   The AcroForm object containing the form fields.
      * @param fieldName  The name of the form field to fill.
      * @param fieldValue The value to set in the form field.
+     * @return Null if the field was filled or does not exist, otherwise the reason it could not be filled.
      */
-    private static void fillFormField(PDAcroForm acroForm, String fieldName, String fieldValue) {
+    private static String fillFormField(PDAcroForm acroForm, String fieldName, String fieldValue) {
         try {
             PDField field = acroForm.getField(fieldName);
             if (field != null) {
                 field.setValue(fieldValue); // Set the field's value
             }
-        } catch (IOException e) {
-            showErrorDialog("Error filling form field: " + fieldName);
+            return null;
+        } catch (IOException | IllegalArgumentException e) {
+            // IllegalArgumentException is thrown when no available font has a glyph for the text
+            return String.valueOf(e.getMessage());
         }
     }
 
@@ -170,11 +381,7 @@ public class RecipePDFWriter extends Main {
      * @param message The message to be displayed in the error dialog.
      */
     private static void showErrorDialog(String message) {
-        Alert alert = new Alert(AlertType.ERROR);
-        alert.setTitle("Error");
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
+        RecipeDialog.showError(message);
     }
 
     /**
@@ -183,10 +390,6 @@ public class RecipePDFWriter extends Main {
      * @param message The message to be displayed in the information dialog.
      */
     private static void showInfoDialog(String message) {
-        Alert alert = new Alert(AlertType.INFORMATION);
-        alert.setTitle("Information");
-        alert.setHeaderText(null);
-        alert.setContentText(message);
-        alert.showAndWait();
+        RecipeDialog.showMessage(message);
     }
 }
@@ -0,0 +1,200 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RecipeRenderCache stores rendered recipe PDFs on disk, keyed by a hash of the template, the render options
+ * and the recipe contents. Saving an unchanged recipe again copies the cached file instead of refilling the template.
+ * The cache is bounded in size and evicts the least recently used PDFs first.
+ */
+public class RecipeRenderCache {
+
+    /** Directory used for the shared cache, next to the recipe store. */
+    public static final Path DEFAULT_DIRECTORY = RecipeStore.DEFAULT_DIRECTORY.resolveSibling("render-cache");
+
+    /** Size limit of the shared cache, 512 MB unless set with the recipevault.renderCacheMB system property. */
+    public static final long DEFAULT_MAX_BYTES = Long.getLong("recipevault.renderCacheMB", 512) * 1024 * 1024;
+
+    private static final String FILE_EXTENSION = ".pdf";
+
+    private static RecipeRenderCache defaultCache;
+
+    private final Path directory;
+    private final long maxBytes;
+    // Cache key to file size, in least to most recently used order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private RecipeRenderCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The shared cache in the default directory.
+     * @throws IOException If the cache directory cannot be created or read.
+     */
+    public static synchronized RecipeRenderCache getDefault() throws IOException {
+        if (defaultCache == null) {
+            defaultCache = open(DEFAULT_DIRECTORY, DEFAULT_MAX_BYTES);
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Opens a cache directory, picking up the PDFs left by earlier runs.
+     * Their last modified times are used to restore the least recently used order.
+     *
+     * @param directory The cache directory.
+     * @param maxBytes  The maximum total size of the cached PDFs.
+     * @return The opened cache.
+     * @throws IOException If the directory cannot be created or read.
+     */
+    public static RecipeRenderCache open(Path directory, long maxBytes) throws IOException {
+        Files.createDirectories(directory);
+        RecipeRenderCache cache = new RecipeRenderCache(directory, maxBytes);
+
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        files.sort((a, b) -> lastModified(a).compareTo(lastModified(b)));
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            long size = Files.size(file);
+            cache.entries.put(fileName.substring(0, fileName.length() - FILE_EXTENSION.length()), size);
+            cache.totalBytes += size;
+        }
+
+        synchronized (cache) {
+            cache.evict();
+        }
+        return cache;
+    }
+
+    /**
+     * Computes the cache key of a rendered recipe.
+     *
+     * @param templateHash  The hash of the template file.
+     * @param renderOptions The options affecting the output, including the render code version.
+     * @param recipe        The recipe being rendered.
+     * @return The cache key.
+     */
+    public static String key(String templateHash, String renderOptions, Recipe recipe) {
+        MessageDigest digest = Recipe.sha256();
+        Recipe.update(digest, templateHash);
+        Recipe.update(digest, renderOptions);
+        Recipe.update(digest, recipe.contentHash());
+        return Recipe.toHex(digest.digest());
+    }
+
+    /**
+     * Copies a cached PDF to the target file if the key is cached.
+     * The copy is done with a channel transfer, so the bytes do not pass through the Java heap.
+     *
+     * @param key    The cache key.
+     * @param target The file to write.
+     * @return True if the key was cached and the file was written.
+     * @throws IOException If the target cannot be written.
+     */
+    public boolean copyTo(String key, Path target) throws IOException {
+        FileChannel source;
+        synchronized (this) {
+            // get, unlike containsKey, moves the entry to the most recently used end
+            if (entries.get(key) == null) {
+                return false;
+            }
+            Path file = fileFor(key);
+            try {
+                source = FileChannel.open(file, StandardOpenOption.READ);
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                // The file was removed behind our back, treat it as a miss
+                totalBytes -= entries.remove(key);
+                return false;
+            }
+        }
+
+        try (FileChannel in = source;
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a rendered PDF to the cache, evicting the least recently used PDFs if the cache grows too large.
+     *
+     * @param key The cache key.
+     * @param pdf The rendered PDF.
+     * @throws IOException If the cache file cannot be written.
+     */
+    public void put(String key, byte[] pdf) throws IOException {
+        if (pdf.length > maxBytes) {
+            return;
+        }
+        Path tempFile = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(tempFile, pdf);
+            Files.move(tempFile, fileFor(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        synchronized (this) {
+            Long previous = entries.put(key, (long) pdf.length);
+            if (previous != null) {
+                totalBytes -= previous;
+            }
+            totalBytes += pdf.length;
+            evict();
+        }
+    }
+
+    // Deletes least recently used PDFs until the cache fits its size limit
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            try {
+                Files.deleteIfExists(fileFor(eldest.getKey()));
+            } catch (IOException e) {
+                // Leave the file for the next run, it is no longer counted
+            }
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + FILE_EXTENSION);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * RecipeStore keeps every saved recipe in a local directory, one properties file per recipe.
+ * A recipe is identified by its name and author, so saving the same recipe again replaces the stored copy.
+ * Every change is stamped with an increasing change sequence number and deleting a recipe leaves a small
+ * tombstone file, so {@link #changesSince(long)} can list what was added, modified or deleted since any
+ * earlier point without comparing recipes.
+ * Prep, cook and total times are also kept as whole minutes, parsed once when a recipe is saved,
+ * and range queries on them are answered from a sorted {@link DurationIndex}.
+ */
+public class RecipeStore {
+
+    /** What happened to a recipe. */
+    public enum ChangeType {
+        ADDED, MODIFIED, DELETED
+    }
+
+    /** The time fields of a recipe that can be searched by duration. */
+    public enum TimeField {
+        PREP, COOK, TOTAL
+    }
+
+    /**
+     * One entry of the change feed: the latest change to a recipe.
+     */
+    public static class Change {
+        private final long id;
+        private final long sequence;
+        private final ChangeType type;
+        private final String name;
+
+        Change(long id, long sequence, ChangeType type, String name) {
+            this.id = id;
+            this.sequence = sequence;
+            this.type = type;
+            this.name = name;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public ChangeType getType() {
+            return type;
+        }
+
+        /**
+         * @return The name of the recipe, as it was when it was deleted for deletions.
+         */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return type + " #" + id + " " + name;
+        }
+    }
+
+    /** Directory used when no other location is configured with the recipevault.home system property. */
+    public static final Path DEFAULT_DIRECTORY = Paths.get(
+            System.getProperty("recipevault.home", System.getProperty("user.home") + "/.recipevault"), "recipes");
+
+    private static final String FILE_EXTENSION = ".properties";
+    private static final String TOMBSTONE_EXTENSION = ".deleted";
+
+    private final Path directory;
+    private final Map<Long, Recipe> recipes = new LinkedHashMap<>();
+    private final Map<String, Long> idsByKey = new HashMap<>();
+    private long nextId = 1;
+
+    // Change sequence numbers per recipe id: {last change, creation}
+    private final Map<Long, long[]> sequences = new HashMap<>();
+    private final Map<Long, Properties> tombstones = new HashMap<>();
+    private long lastSequence;
+
+    // Durations per recipe id in minutes, indexed like TimeField, and the indexes built from them on demand
+    private final Map<Long, int[]> minutes = new HashMap<>();
+    private DurationIndex[] timeIndexes;
+
+    private RecipeStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Opens the store in the given directory, creating the directory if needed and loading every stored recipe.
+     *
+     * @param directory The directory holding the recipe files.
+     * @return The opened store.
+     * @throws IOException If the directory cannot be created or a recipe file cannot be read.
+     */
+    public static RecipeStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        RecipeStore store = new RecipeStore(directory);
+
+        List<Long> unstamped = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_EXTENSION)) {
+            for (Path file : files) {
+                long id = idOf(file, FILE_EXTENSION);
+                if (id < 0) {
+                    continue;
+                }
+                Properties properties = readProperties(file);
+                Recipe recipe = fromProperties(properties);
+                store.recipes.put(id, recipe);
+                store.idsByKey.put(keyOf(recipe), id);
+                store.minutes.put(id, readMinutes(properties, recipe));
+                store.nextId = Math.max(store.nextId, id + 1);
+
+                long sequence = Long.parseLong(properties.getProperty("sequence", "0"));
+                long created = Long.parseLong(properties.getProperty("created", Long.toString(sequence)));
+                if (sequence == 0) {
+                    unstamped.add(id);
+                } else {
+                    store.sequences.put(id, new long[]{sequence, created});
+                    store.lastSequence = Math.max(store.lastSequence, sequence);
+                }
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + TOMBSTONE_EXTENSION)) {
+            for (Path file : files) {
+                long id = idOf(file, TOMBSTONE_EXTENSION);
+                if (id < 0) {
+                    continue;
+                }
+                Properties tombstone = readProperties(file);
+                store.tombstones.put(id, tombstone);
+
+                // Finish a deletion that was interrupted after its tombstone was written
+                Recipe deleted = store.recipes.remove(id);
+                if (deleted != null) {
+                    store.idsByKey.remove(keyOf(deleted));
+                    store.minutes.remove(id);
+                    store.sequences.remove(id);
+                    unstamped.remove(Long.valueOf(id));
+                    Files.deleteIfExists(store.fileFor(id));
+                }
+                store.nextId = Math.max(store.nextId, id + 1);
+                store.lastSequence = Math.max(store.lastSequence, Long.parseLong(tombstone.getProperty("sequence", "0")));
+            }
+        }
+
+        // Recipes saved before change sequence numbers existed get one now, in id order
+        Collections.sort(unstamped);
+        for (long id : unstamped) {
+            long sequence = ++store.lastSequence;
+            long[] stamps = {sequence, sequence};
+            store.write(id, store.recipes.get(id), stamps);
+            store.sequences.put(id, stamps);
+        }
+        return store;
+    }
+
+    /**
+     * Saves a recipe, replacing the stored recipe with the same name and author if there is one.
+     *
+     * @param recipe The recipe to save.
+     * @return The id of the stored recipe.
+     * @throws IOException If the recipe file cannot be written.
+     */
+    public long save(Recipe recipe) throws IOException {
+        Long existingId = findId(recipe);
+        long id = existingId != null ? existingId : nextId++;
+
+        // Saving an unchanged recipe again is not a change
+        if (existingId != null && recipes.get(id).contentHash().equals(recipe.contentHash())) {
+            return id;
+        }
+
+        long sequence = lastSequence + 1;
+        long[] previous = sequences.get(id);
+        long[] stamps = {sequence, previous != null ? previous[1] : sequence};
+        write(id, recipe, stamps);
+        sequences.put(id, stamps);
+        lastSequence = sequence;
+
+        recipes.put(id, recipe);
+        idsByKey.put(keyOf(recipe), id);
+        minutes.put(id, durations(recipe));
+        timeIndexes = null;
+        return id;
+    }
+
+    /**
+     * Deletes a stored recipe.
+     *
+     * @param id The id of the recipe to delete.
+     * @return True if a recipe was deleted.
+     * @throws IOException If the recipe file cannot be deleted.
+     */
+    public boolean delete(long id) throws IOException {
+        Recipe removed = recipes.get(id);
+        if (removed == null) {
+            return false;
+        }
+
+        // The tombstone is written first, so a crash in between cannot lose the deletion from the change feed
+        long sequence = lastSequence + 1;
+        long[] previous = sequences.get(id);
+        Properties tombstone = new Properties();
+        tombstone.setProperty("sequence", Long.toString(sequence));
+        tombstone.setProperty("created", Long.toString(previous != null ? previous[1] : sequence));
+        tombstone.setProperty("name", removed.getName());
+        tombstone.setProperty("author", removed.getAuthor());
+        writeAtomically(directory.resolve(id + TOMBSTONE_EXTENSION), tombstone);
+        lastSequence = sequence;
+        tombstones.put(id, tombstone);
+
+        recipes.remove(id);
+        sequences.remove(id);
+        minutes.remove(id);
+        timeIndexes = null;
+        idsByKey.remove(keyOf(removed));
+        Files.deleteIfExists(fileFor(id));
+        return true;
+    }
+
+    /**
+     * @param id    The id of a stored recipe.
+     * @param field The time field.
+     * @return The time in minutes, or {@link DurationParser#UNKNOWN} if the recipe or its time is unknown.
+     */
+    public int getMinutes(long id, TimeField field) {
+        int[] durations = minutes.get(id);
+        return durations != null ? durations[field.ordinal()] : DurationParser.UNKNOWN;
+    }
+
+    /**
+     * Finds the recipes whose time is within a range, e.g. TOTAL from 0 to 30 for "under 30 minutes total".
+     * Recipes whose time could not be read are never returned.
+     *
+     * @param field      The time field to search.
+     * @param minMinutes The shortest time to include.
+     * @param maxMinutes The longest time to include.
+     * @return The ids of the matching recipes, quickest first.
+     */
+    public List<Long> findByTime(TimeField field, int minMinutes, int maxMinutes) {
+        if (timeIndexes == null) {
+            long[] ids = new long[minutes.size()];
+            int[][] columns = new int[TimeField.values().length][minutes.size()];
+            int count = 0;
+            for (Map.Entry<Long, int[]> entry : minutes.entrySet()) {
+                ids[count] = entry.getKey();
+                for (int column = 0; column < columns.length; column++) {
+                    columns[column][count] = entry.getValue()[column];
+                }
+                count++;
+            }
+            DurationIndex[] indexes = new DurationIndex[columns.length];
+            for (int column = 0; column < columns.length; column++) {
+                indexes[column] = DurationIndex.build(ids, columns[column], count);
+            }
+            timeIndexes = indexes;
+        }
+        return timeIndexes[field.ordinal()].find(minMinutes, maxMinutes);
+    }
+
+    /**
+     * @return The sequence number of the latest change to the store, 0 if nothing was ever saved.
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @param id The id of a stored recipe.
+     * @return The sequence number of its latest change, or 0 if there is no such recipe.
+     */
+    public long getSequence(long id) {
+        long[] sequence = sequences.get(id);
+        return sequence != null ? sequence[0] : 0;
+    }
+
+    /**
+     * Lists the recipes changed after the given sequence number, one entry per recipe, oldest change first.
+     * A recipe created after that point is ADDED even if it was edited again since; a recipe that was
+     * both created and deleted after that point is left out.
+     *
+     * @param sequence The sequence number of the last change already seen, 0 for everything.
+     * @return The changes.
+     */
+    public List<Change> changesSince(long sequence) {
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<Long, long[]> entry : sequences.entrySet()) {
+            long[] stamps = entry.getValue();
+            if (stamps[0] > sequence) {
+                ChangeType type = stamps[1] > sequence ? ChangeType.ADDED : ChangeType.MODIFIED;
+                changes.add(new Change(entry.getKey(), stamps[0], type, recipes.get(entry.getKey()).getName()));
+            }
+        }
+        for (Map.Entry<Long, Properties> entry : tombstones.entrySet()) {
+            Properties tombstone = entry.getValue();
+            long deleted = Long.parseLong(tombstone.getProperty("sequence", "0"));
+            long created = Long.parseLong(tombstone.getProperty("created", "0"));
+            if (deleted > sequence && created <= sequence) {
+                changes.add(new Change(entry.getKey(), deleted, ChangeType.DELETED, tombstone.getProperty("name", "")));
+            }
+        }
+        changes.sort((a, b) -> Long.compare(a.getSequence(), b.getSequence()));
+        return changes;
+    }
+
+    /**
+     * @param id The id of the recipe.
+     * @return The stored recipe, or null if there is none with that id.
+     */
+    public Recipe get(long id) {
+        return recipes.get(id);
+    }
+
+    /**
+     * @param recipe A recipe that may already be stored.
+     * @return The id of the stored recipe with the same name and author, or null if there is none.
+     */
+    public Long findId(Recipe recipe) {
+        return idsByKey.get(keyOf(recipe));
+    }
+
+    /**
+     * @return Every stored recipe keyed by id, in load and save order.
+     */
+    public Map<Long, Recipe> getAll() {
+        return Collections.unmodifiableMap(recipes);
+    }
+
+    /**
+     * @return The number of stored recipes.
+     */
+    public int size() {
+        return recipes.size();
+    }
+
+    private Path fileFor(long id) {
+        return directory.resolve(id + FILE_EXTENSION);
+    }
+
+    // Writes a recipe file with its change sequence numbers
+    private void write(long id, Recipe recipe, long[] stamps) throws IOException {
+        Properties properties = toProperties(recipe);
+        properties.setProperty("sequence", Long.toString(stamps[0]));
+        properties.setProperty("created", Long.toString(stamps[1]));
+        writeAtomically(fileFor(id), properties);
+    }
+
+    private static void writeAtomically(Path file, Properties properties) throws IOException {
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // The id in a file name such as 12.properties, or -1 for other files
+    private static long idOf(Path file, String extension) {
+        String fileName = file.getFileName().toString();
+        try {
+            return Long.parseLong(fileName.substring(0, fileName.length() - extension.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Recipes are matched on name and author, ignoring case and surrounding spaces
+    private static String keyOf(Recipe recipe) {
+        return recipe.getName().trim().toLowerCase(Locale.ROOT) + "\u0000" + recipe.getAuthor().trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Parses the times of a recipe; a missing total is taken as prep plus cook
+    private static int[] durations(Recipe recipe) {
+        int prep = DurationParser.parseMinutes(recipe.getPrepTime());
+        int cook = DurationParser.parseMinutes(recipe.getCookTime());
+        int total = DurationParser.parseMinutes(recipe.getTotalTime());
+        if (total == DurationParser.UNKNOWN && prep >= 0 && cook >= 0) {
+            total = prep + cook;
+        }
+        return new int[]{prep, cook, total};
+    }
+
+    // Reads the stored minutes, parsing the time text only for files written before minutes were stored
+    private static int[] readMinutes(Properties properties, Recipe recipe) {
+        if (properties.getProperty("totalMinutes") == null) {
+            return durations(recipe);
+        }
+        return new int[]{
+                Integer.parseInt(properties.getProperty("prepMinutes", "-1")),
+                Integer.parseInt(properties.getProperty("cookMinutes", "-1")),
+                Integer.parseInt(properties.getProperty("totalMinutes", "-1"))
+        };
+    }
+
+    private static Properties toProperties(Recipe recipe) {
+        Properties properties = new Properties();
+        properties.setProperty("name", recipe.getName());
+        properties.setProperty("category", recipe.getCategory());
+        properties.setProperty("author", recipe.getAuthor());
+        properties.setProperty("prepTime", recipe.getPrepTime());
+        properties.setProperty("cookTime", recipe.getCookTime());
+        properties.setProperty("totalTime", recipe.getTotalTime());
+        properties.setProperty("servings", recipe.getServings());
+        properties.setProperty("theme", recipe.getTheme());
+        properties.setProperty("notes", recipe.getNotes());
+        properties.setProperty("image", recipe.getImagePath());
+        int[] durations = durations(recipe);
+        properties.setProperty("prepMinutes", Integer.toString(durations[TimeField.PREP.ordinal()]));
+        properties.setProperty("cookMinutes", Integer.toString(durations[TimeField.COOK.ordinal()]));
+        properties.setProperty("totalMinutes", Integer.toString(durations[TimeField.TOTAL.ordinal()]));
+        putList(properties, "ingredient", recipe.getIngredients());
+        putList(properties, "instruction", recipe.getInstructions());
+        return properties;
+    }
+
+    private static Properties readProperties(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    private static Recipe fromProperties(Properties properties) {
+        return new Recipe(
+                properties.getProperty("name", ""),
+                properties.getProperty("category", ""),
+                properties.getProperty("author", ""),
+                properties.getProperty("prepTime", ""),
+                properties.getProperty("cookTime", ""),
+                properties.getProperty("totalTime", ""),
+                properties.getProperty("servings", ""),
+                properties.getProperty("theme", ""),
+                getList(properties, "ingredient"),
+                getList(properties, "instruction"),
+                properties.getProperty("notes", ""),
+                properties.getProperty("image", ""));
+    }
+
+    private static void putList(Properties properties, String prefix, List<String> values) {
+        properties.setProperty(prefix + ".count", Integer.toString(values.size()));
+        for (int i = 0; i < values.size(); i++) {
+            properties.setProperty(prefix + "." + (i + 1), values.get(i));
+        }
+    }
+
+    private static List<String> getList(Properties properties, String prefix) {
+        int count = Integer.parseInt(properties.getProperty(prefix + ".count", "0"));
+        List<String> values = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            values.add(properties.getProperty(prefix + "." + i, ""));
+        }
+        return values;
+    }
+
+    /**
+     * Lists the recipes in the vault whose prep, cook or total time is within a range.
+     * Usage: RecipeStore prep|cook|total min-minutes max-minutes [vault directory]
+     *
+     * @param args The time field, the range and optionally the vault directory.
+     * @throws IOException If the vault cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: RecipeStore <prep|cook|total> <min minutes> <max minutes> [vault directory]");
+            System.exit(2);
+        }
+        TimeField field = TimeField.valueOf(args[0].toUpperCase(Locale.ROOT));
+        int min = Integer.parseInt(args[1]);
+        int max = Integer.parseInt(args[2]);
+        RecipeStore store = open(args.length > 3 ? Paths.get(args[3]) : DEFAULT_DIRECTORY);
+
+        for (long id : store.findByTime(field, min, max)) {
+            System.out.printf(Locale.ROOT, "#%d  %-8s %s%n", id,
+                    DurationParser.format(store.getMinutes(id, field)), store.get(id).getName());
+        }
+    }
+}
@@ -0,0 +1,385 @@
+package org.example.recipevault;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * RecipeSync keeps a folder or ZIP archive of recipe PDFs up to date with the vault.
+ * The target remembers the change sequence number it was last synced to, so a sync only reads the
+ * {@link RecipeStore#changesSince(long) change feed} after that point. A changed recipe whose content hash
+ * matches the PDF already in the target is skipped, and the others are checked against their template's
+ * {@link TemplateDescriptor} and rendered in parallel through the render cache. Each sync appends the changes it applied to CHANGELOG.txt in the target.
+ */
+public class RecipeSync {
+
+    /**
+     * File in the target recording the synced sequence number, the hash and file of each recipe and the
+     * recipes to retry because their export failed.
+     */
+    public static final String STATE_FILE = ".recipevault-sync.properties";
+
+    /** File in the target listing the changes applied by each sync. */
+    public static final String CHANGELOG_FILE = "CHANGELOG.txt";
+
+    /**
+     * What a sync did.
+     */
+    public static class Result {
+        private final List<RecipeStore.Change> changes = new ArrayList<>();
+        private final Map<Long, String> failures = new LinkedHashMap<>();
+        private final Map<Long, String> warnings = new LinkedHashMap<>();
+        private int rendered;
+        private int unchanged;
+        private int deleted;
+
+        /**
+         * @return The changes found in the vault since the previous sync, then the recipes retried after an
+         *         earlier failure. Deletions of recipes that were never exported are left out.
+         */
+        public List<RecipeStore.Change> getChanges() {
+            return changes;
+        }
+
+        /**
+         * @return The recipes that could not be exported, keyed by id, with the reason.
+         *         They are tried again on the next sync.
+         */
+        public Map<Long, String> getFailures() {
+            return failures;
+        }
+
+        /**
+         * @return The exported recipes with text longer than its template field, keyed by id.
+         */
+        public Map<Long, String> getWarnings() {
+            return warnings;
+        }
+
+        public int getRendered() {
+            return rendered;
+        }
+
+        /**
+         * @return The changed recipes whose PDF was already up to date.
+         */
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        public int getDeleted() {
+            return deleted;
+        }
+    }
+
+    private RecipeSync() {
+    }
+
+    /**
+     * Brings the target up to date with the vault.
+     *
+     * @param store  The recipe vault.
+     * @param target A directory, or a file ending in .zip for an archive; either is created if missing.
+     * @return What the sync did.
+     * @throws IOException If the target cannot be read or written.
+     */
+    public static Result sync(RecipeStore store, Path target) throws IOException {
+        if (target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            Map<String, String> env = Collections.singletonMap("create", "true");
+            try (FileSystem archive = FileSystems.newFileSystem(URI.create("jar:" + target.toAbsolutePath().toUri()), env)) {
+                Path staging = Files.createTempDirectory("recipevault-sync");
+                try {
+                    return sync(store, archive.getPath("/"), staging);
+                } finally {
+                    deleteRecursively(staging);
+                }
+            }
+        }
+
+        Files.createDirectories(target);
+        // Staging in the target directory lets finished PDFs be moved into place atomically
+        Path staging = Files.createTempDirectory(target, ".sync");
+        try {
+            return sync(store, target, staging);
+        } finally {
+            deleteRecursively(staging);
+        }
+    }
+
+    private static Result sync(RecipeStore store, Path root, Path staging) throws IOException {
+        Path stateFile = root.resolve(STATE_FILE);
+        Properties state = new Properties();
+        if (Files.exists(stateFile)) {
+            try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+                state.load(reader);
+            }
+        }
+
+        // A target synced further than the vault goes was synced from another vault: start over
+        long since = Long.parseLong(state.getProperty("sequence", "0"));
+        if (since > store.getLastSequence()) {
+            since = 0;
+        }
+
+        Result result = new Result();
+        result.changes.addAll(store.changesSince(since));
+        if (since == 0) {
+            // Without a sync point the feed has no deletions, so drop whatever the vault no longer has
+            for (String name : state.stringPropertyNames()) {
+                if (name.endsWith(".file")) {
+                    long id = Long.parseLong(name.substring(0, name.length() - ".file".length()));
+                    if (store.get(id) == null) {
+                        result.changes.add(new RecipeStore.Change(id, 0, RecipeStore.ChangeType.DELETED, state.getProperty(name)));
+                    }
+                }
+            }
+        }
+
+        // Recipes that failed before are tried again even though the sync point has moved past their change
+        Set<Long> changed = new HashSet<>();
+        for (RecipeStore.Change change : result.changes) {
+            changed.add(change.getId());
+        }
+        for (String name : state.stringPropertyNames()) {
+            if (name.endsWith(".retry")) {
+                long id = Long.parseLong(name.substring(0, name.length() - ".retry".length()));
+                Recipe recipe = store.get(id);
+                if (recipe == null) {
+                    state.remove(name);
+                } else if (changed.add(id)) {
+                    result.changes.add(new RecipeStore.Change(id, store.getSequence(id), RecipeStore.ChangeType.MODIFIED, recipe.getName()));
+                }
+            }
+        }
+
+        // Deletions and up-to-date recipes are handled here, the rest is rendered in parallel
+        Map<RecipeStore.Change, Future<String>> renders = new LinkedHashMap<>();
+        ExecutorService renderers = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()));
+        try {
+            for (Iterator<RecipeStore.Change> it = result.changes.iterator(); it.hasNext(); ) {
+                RecipeStore.Change change = it.next();
+                long id = change.getId();
+                String oldFile = state.getProperty(id + ".file");
+                if (change.getType() == RecipeStore.ChangeType.DELETED) {
+                    state.remove(id + ".retry");
+                    if (oldFile == null) {
+                        // Never exported, so there is nothing to remove or report
+                        it.remove();
+                        continue;
+                    }
+                    Files.deleteIfExists(root.resolve(oldFile));
+                    state.remove(id + ".file");
+                    state.remove(id + ".hash");
+                    result.deleted++;
+                    continue;
+                }
+
+                Recipe recipe = store.get(id);
+                String fileName = fileName(id, recipe);
+                if (recipe.contentHash().equals(state.getProperty(id + ".hash"))
+                        && fileName.equals(oldFile) && Files.exists(root.resolve(fileName))) {
+                    state.remove(id + ".retry");
+                    result.unchanged++;
+                    continue;
+                }
+                String problem = checkTemplate(id, recipe, result);
+                if (problem != null) {
+                    renders.put(change, CompletableFuture.completedFuture(problem));
+                    continue;
+                }
+                Path stagedFile = staging.resolve(fileName);
+                renders.put(change, renderers.submit(() ->
+                        RecipePDFWriter.writeRecipePDF(recipe, stagedFile) ? null : "No form fields found in the PDF template."));
+            }
+
+            for (Map.Entry<RecipeStore.Change, Future<String>> render : renders.entrySet()) {
+                RecipeStore.Change change = render.getKey();
+                long id = change.getId();
+                String error;
+                try {
+                    error = render.getValue().get();
+                } catch (ExecutionException e) {
+                    error = String.valueOf(e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Sync interrupted", e);
+                }
+                if (error != null) {
+                    result.failures.put(id, error);
+                    state.setProperty(id + ".retry", error);
+                    continue;
+                }
+
+                Recipe recipe = store.get(id);
+                String fileName = fileName(id, recipe);
+                String oldFile = state.getProperty(id + ".file");
+                if (root.getFileSystem() == staging.getFileSystem()) {
+                    Files.move(staging.resolve(fileName), root.resolve(fileName),
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } else {
+                    Files.copy(staging.resolve(fileName), root.resolve(fileName), StandardCopyOption.REPLACE_EXISTING);
+                }
+                if (oldFile != null && !oldFile.equals(fileName)) {
+                    Files.deleteIfExists(root.resolve(oldFile));
+                }
+                state.setProperty(id + ".file", fileName);
+                state.setProperty(id + ".hash", recipe.contentHash());
+                state.remove(id + ".retry");
+                result.rendered++;
+            }
+
+            appendChangelog(root.resolve(CHANGELOG_FILE), since, store.getLastSequence(), result);
+
+            // Failed recipes are kept as retries, so one that keeps failing does not hold the sync point back
+            // and make every later sync read and log the changes after it again
+            state.setProperty("sequence", Long.toString(store.getLastSequence()));
+        } catch (IOException | RuntimeException e) {
+            // The sync point is not moved, but the PDFs already moved into place are recorded,
+            // so the next sync does not export them again or leave them behind when renamed
+            try {
+                storeState(stateFile, state);
+            } catch (IOException stateFailure) {
+                e.addSuppressed(stateFailure);
+            }
+            throw e;
+        } finally {
+            renderers.shutdownNow();
+        }
+
+        storeState(stateFile, state);
+        return result;
+    }
+
+    private static void storeState(Path stateFile, Properties state) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(stateFile, StandardCharsets.UTF_8)) {
+            state.store(writer, "Recipe Vault sync state");
+        }
+    }
+
+    // Checks the recipe against the compiled description of its template; values the template has no
+    // field for fail the recipe instead of being dropped, text longer than its field is only a warning
+    private static String checkTemplate(long id, Recipe recipe, Result result) {
+        String templateFileName = RecipePDFWriter.templateFileName(recipe.getTheme());
+        if (templateFileName == null) {
+            return "Invalid theme: " + recipe.getTheme();
+        }
+        List<String> problems = new ArrayList<>();
+        List<String> warnings = new ArrayList<>();
+        try {
+            TemplateAnalyzer.forTemplate(templateFileName).check(RecipePDFWriter.fieldValues(recipe), problems, warnings);
+        } catch (IOException e) {
+            return "Cannot read template " + templateFileName + ": " + e.getMessage();
+        }
+        if (!warnings.isEmpty()) {
+            result.warnings.put(id, String.join("; ", warnings));
+        }
+        return problems.isEmpty() ? null : String.join("; ", problems);
+    }
+
+    // Unique per recipe and readable: 12-Apple_Pie.pdf
+    static String fileName(long id, Recipe recipe) {
+        String name = recipe.getName().trim().replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+        return id + "-" + (name.isEmpty() ? "recipe" : name) + ".pdf";
+    }
+
+    private static void appendChangelog(Path changelog, long from, long to, Result result) throws IOException {
+        if (result.changes.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        // A sync with no new changes only retried earlier failures
+        String range = to > from ? String.format(Locale.ROOT, "changes %d to %d", from + 1, to) : "retries";
+        lines.add(String.format(Locale.ROOT, "== Sync %s, %s ==",
+                LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME), range));
+        for (RecipeStore.Change change : result.changes) {
+            String failure = result.failures.get(change.getId());
+            lines.add(failure == null ? change.toString() : change + " (FAILED: " + failure + ")");
+        }
+        lines.add("");
+        // Archives cannot be appended to in place, so the changelog is rewritten with the new entries at the end
+        if (Files.exists(changelog)) {
+            List<String> existing = new ArrayList<>(Files.readAllLines(changelog, StandardCharsets.UTF_8));
+            existing.addAll(lines);
+            lines = existing;
+        }
+        Files.write(changelog, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            List<Path> files = new ArrayList<>();
+            paths.forEach(files::add);
+            Collections.reverse(files);
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Syncs the vault to a folder or ZIP archive of PDFs and prints the changes.
+     * Usage: RecipeSync target-folder-or-zip [vault directory]
+     *
+     * @param args The target and optionally the vault directory.
+     * @throws IOException If the vault or the target cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: RecipeSync <target folder or .zip> [vault directory]");
+            System.exit(2);
+        }
+        Path target = Paths.get(args[0]);
+        Path vault = args.length > 1 ? Paths.get(args[1]) : RecipeStore.DEFAULT_DIRECTORY;
+
+        long start = System.nanoTime();
+        RecipeStore store = RecipeStore.open(vault);
+        Result result = sync(store, target);
+        long elapsed = System.nanoTime() - start;
+
+        for (RecipeStore.Change change : result.getChanges()) {
+            System.out.println(change);
+        }
+        for (Map.Entry<Long, String> failure : result.getFailures().entrySet()) {
+            System.err.println("Could not export #" + failure.getKey() + ": " + failure.getValue());
+        }
+        for (Map.Entry<Long, String> warning : result.getWarnings().entrySet()) {
+            System.err.println("Warning for #" + warning.getKey() + ": " + warning.getValue());
+        }
+        System.out.printf(Locale.ROOT, "%d changes: %d rendered, %d already up to date, %d deleted, %d failed in %.1f s%n",
+                result.getChanges().size(), result.getRendered(), result.getUnchanged(), result.getDeleted(),
+                result.getFailures().size(), elapsed / 1e9);
+        if (!result.getFailures().isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,446 @@
+package org.example.recipevault;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.UnixOperatingSystemMXBean;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+
+/**
+ * RenderSoak is a load and soak harness for PDF export. It fills the four theme templates concurrently with
+ * a generated corpus of maximal recipes (every ingredient and direction field used, values as long as their
+ * fields hold) and runs in rounds. After each round it forces a collection and samples heap, direct and mapped
+ * buffers and open file descriptors, so a PDDocument or stream left open shows up as steady growth.
+ * It also checks that the render cache evicts the least recently used PDFs.
+ * Latency percentiles, throughput and GC pauses are compared against a recorded baseline file.
+ * <p>
+ * Usage: RenderSoak [--renders N | --minutes M] [--threads T] [--round N] [--recipes N] [--seed S]
+ * [--baseline soak-baseline.properties] [--record] [--tolerance 0.25]
+ * <p>
+ * Exits with status 1 when a render fails, a resource keeps growing, or a metric regresses past the
+ * tolerance; with --record the run's metrics are written as the new baseline instead.
+ */
+public class RenderSoak {
+
+    private static final String[] THEMES = {"Spring", "Summer", "Fall", "Winter"};
+
+    private static final String[] WORDS = {"flour", "butter", "sugar", "salt", "pepper", "garlic", "onion", "olive",
+            "oil", "tomato", "basil", "simmer", "whisk", "fold", "roast", "chop", "minced", "fresh", "golden",
+            "slowly", "until", "tender", "crisp", "bake", "stir", "season", "taste", "cream", "lemon", "zest",
+            "caf\u00e9", "cr\u00e8me", "jalape\u00f1o", "saut\u00e9", "pur\u00e9e"};
+
+    // Growth allowed between the first and last round before a resource counts as leaking
+    private static final long MAX_HEAP_GROWTH = 64L * 1024 * 1024;
+    private static final long MAX_BUFFER_GROWTH = 32L * 1024 * 1024;
+    private static final long MAX_DESCRIPTOR_GROWTH = 16;
+    // Pauses this short come and go with scheduling, so a baseline without a pause of note is not a limit of 0 ms
+    private static final double GC_PAUSE_SLACK_MS = 20;
+
+    /**
+     * Resource use sampled after a forced collection.
+     */
+    static class Sample {
+        final long heapBytes;
+        final long bufferBytes;
+        final long openFiles;
+
+        Sample(long heapBytes, long bufferBytes, long openFiles) {
+            this.heapBytes = heapBytes;
+            this.bufferBytes = bufferBytes;
+            this.openFiles = openFiles;
+        }
+
+        static Sample take() {
+            System.gc();
+            long buffers = 0;
+            for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+                buffers += Math.max(0, pool.getMemoryUsed());
+            }
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            long openFiles = os instanceof UnixOperatingSystemMXBean
+                    ? ((UnixOperatingSystemMXBean) os).getOpenFileDescriptorCount() : -1;
+            return new Sample(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), buffers, openFiles);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "heap %6.1f MB, buffers %5.1f MB, open files %d",
+                    heapBytes / 1048576.0, bufferBytes / 1048576.0, openFiles);
+        }
+    }
+
+    // GC pauses seen through the collectors' notifications, leaving out the collections forced for sampling
+    private static final AtomicLong gcPauseTotal = new AtomicLong();
+    private static final AtomicLong gcPauseMax = new AtomicLong();
+
+    private RenderSoak() {
+    }
+
+    /**
+     * Generates maximal recipes: all ingredient and direction fields used, each value about as long as its
+     * field in the theme's template holds, spread over the four themes.
+     *
+     * @param count The number of recipes.
+     * @param seed  The random seed, so a corpus can be generated again.
+     * @return The recipes.
+     * @throws IOException If a template cannot be read.
+     */
+    static List<Recipe> corpus(int count, long seed) throws IOException {
+        Random random = new Random(seed);
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String theme = THEMES[i % THEMES.length];
+            TemplateDescriptor template = TemplateAnalyzer.forTheme(theme);
+            // Every list field the writer fills, so the corpus follows the template when it gains rows
+            List<String> ingredients = new ArrayList<>();
+            List<String> directions = new ArrayList<>();
+            for (String field : RecipePDFWriter.templateFieldNames()) {
+                if (field.startsWith("Ingredient")) {
+                    ingredients.add(text(random, template, field));
+                } else if (field.startsWith("Direction")) {
+                    directions.add(text(random, template, field));
+                }
+            }
+            recipes.add(new Recipe(text(random, template, "Recipe") + " " + i, text(random, template, "Meal Type"),
+                    text(random, template, "Author"), (5 + random.nextInt(60)) + " min", (10 + random.nextInt(120)) + " min",
+                    (20 + random.nextInt(180)) + " min", Integer.toString(1 + random.nextInt(12)), theme,
+                    ingredients, directions, text(random, template, "Notes")));
+        }
+        return recipes;
+    }
+
+    // Random words filling between 70% and 100% of the field's capacity
+    private static String text(Random random, TemplateDescriptor template, String field) {
+        int index = template.indexOf(field);
+        int capacity = index < 0 ? 40 : Math.max(8, template.getCapacity(index));
+        int length = capacity * 7 / 10 + random.nextInt(capacity * 3 / 10 + 1);
+        StringBuilder text = new StringBuilder(length + 16);
+        while (text.length() < length) {
+            if (text.length() > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.setLength(length);
+        return text.toString().trim();
+    }
+
+    private static void watchGarbageCollections() {
+        NotificationListener listener = (notification, handback) -> {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            // Concurrent cycles run beside the application and are not pauses
+            if ("System.gc()".equals(info.getGcCause()) || info.getGcName().contains("Concurrent")) {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            gcPauseTotal.addAndGet(duration);
+            gcPauseMax.accumulateAndGet(duration, Math::max);
+        };
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter) {
+                ((NotificationEmitter) collector).addNotificationListener(listener, null, null);
+            }
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, int count, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * count) - 1;
+        return sortedNanos[Math.max(0, Math.min(count - 1, index))] / 1e6;
+    }
+
+    /**
+     * Runs the soak and checks the results.
+     *
+     * @param args The options, see the class description.
+     * @throws IOException If the templates or the baseline cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        int totalRenders = 2000;
+        double minutes = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int roundSize = 200;
+        int recipeCount = 400;
+        long seed = 1;
+        Path baselineFile = Paths.get("soak-baseline.properties");
+        boolean record = false;
+        double tolerance = 0.25;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--renders":
+                    totalRenders = Integer.parseInt(args[++i]);
+                    break;
+                case "--minutes":
+                    minutes = Double.parseDouble(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--round":
+                    roundSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--recipes":
+                    recipeCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--baseline":
+                    baselineFile = Paths.get(args[++i]);
+                    break;
+                case "--record":
+                    record = true;
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        List<Recipe> recipes = corpus(recipeCount, seed);
+        System.out.printf(Locale.ROOT, "Generated %d recipes, rendering with %d threads%n", recipes.size(), threads);
+
+        ExecutorService renderers = Executors.newFixedThreadPool(threads);
+        AtomicInteger failures = new AtomicInteger();
+        long deadline = minutes > 0 ? System.nanoTime() + (long) (minutes * 60e9) : Long.MAX_VALUE;
+        long[] latencies = new long[minutes > 0 ? 1 << 16 : Math.max(1, totalRenders)];
+        int measured = 0;
+        long measuredNanos = 0;
+        List<Sample> samples = new ArrayList<>();
+        try {
+            // The first round warms up the JIT and the template caches and is not measured
+            runRound(renderers, recipes, 0, Math.min(roundSize, recipes.size()), null, failures);
+            samples.add(Sample.take());
+            System.out.println("Warmed up: " + samples.get(0));
+            watchGarbageCollections();
+
+            int next = 0;
+            int round = 1;
+            while (minutes > 0 ? System.nanoTime() < deadline : next < totalRenders) {
+                int size = minutes > 0 ? roundSize : Math.min(roundSize, totalRenders - next);
+                if (measured + size > latencies.length) {
+                    latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, measured + size));
+                }
+                long[] roundLatencies = new long[size];
+                long start = System.nanoTime();
+                runRound(renderers, recipes, next, size, roundLatencies, failures);
+                measuredNanos += System.nanoTime() - start;
+                System.arraycopy(roundLatencies, 0, latencies, measured, size);
+                measured += size;
+                next += size;
+
+                Sample sample = Sample.take();
+                samples.add(sample);
+                System.out.printf(Locale.ROOT, "Round %d: %d renders, %s%n", round++, measured, sample);
+            }
+        } finally {
+            renderers.shutdownNow();
+        }
+
+        Arrays.sort(latencies, 0, measured);
+        Sample first = samples.get(0);
+        Sample last = samples.get(samples.size() - 1);
+        Properties metrics = new Properties();
+        metrics.setProperty("p50Ms", format(percentile(latencies, measured, 50)));
+        metrics.setProperty("p99Ms", format(percentile(latencies, measured, 99)));
+        metrics.setProperty("maxMs", format(percentile(latencies, measured, 100)));
+        metrics.setProperty("rendersPerSecond", format(measuredNanos == 0 ? 0 : measured / (measuredNanos / 1e9)));
+        metrics.setProperty("gcPauseMaxMs", Long.toString(gcPauseMax.get()));
+        metrics.setProperty("gcPausePercent", format(measuredNanos == 0 ? 0 : gcPauseTotal.get() * 1e6 / measuredNanos * 100));
+        metrics.setProperty("heapGrowthMB", format((last.heapBytes - first.heapBytes) / 1048576.0));
+        metrics.setProperty("bufferGrowthMB", format((last.bufferBytes - first.bufferBytes) / 1048576.0));
+        metrics.setProperty("openFileGrowth", Long.toString(last.openFiles - first.openFiles));
+
+        System.out.printf(Locale.ROOT, "%d renders: p50 %s ms, p99 %s ms, max %s ms, %s renders/s%n", measured,
+                metrics.getProperty("p50Ms"), metrics.getProperty("p99Ms"), metrics.getProperty("maxMs"),
+                metrics.getProperty("rendersPerSecond"));
+        System.out.printf(Locale.ROOT, "GC pauses: max %s ms, %s%% of the run%n",
+                metrics.getProperty("gcPauseMaxMs"), metrics.getProperty("gcPausePercent"));
+        System.out.printf(Locale.ROOT, "Growth: heap %s MB, buffers %s MB, open files %s%n",
+                metrics.getProperty("heapGrowthMB"), metrics.getProperty("bufferGrowthMB"),
+                metrics.getProperty("openFileGrowth"));
+
+        List<String> problems = new ArrayList<>();
+        if (failures.get() > 0) {
+            problems.add(failures.get() + " renders failed");
+        }
+        String cacheProblem = checkRenderCacheEviction();
+        if (cacheProblem != null) {
+            problems.add(cacheProblem);
+        }
+        // Growth only counts as a leak when the samples keep rising, not when the last one is just high
+        if (rising(samples, sample -> sample.heapBytes, MAX_HEAP_GROWTH)) {
+            problems.add("heap keeps growing: " + metrics.getProperty("heapGrowthMB") + " MB");
+        }
+        if (rising(samples, sample -> sample.bufferBytes, MAX_BUFFER_GROWTH)) {
+            problems.add("direct and mapped buffers keep growing: " + metrics.getProperty("bufferGrowthMB") + " MB");
+        }
+        if (first.openFiles >= 0 && rising(samples, sample -> sample.openFiles, MAX_DESCRIPTOR_GROWTH)) {
+            problems.add("open files keep growing: " + metrics.getProperty("openFileGrowth"));
+        }
+
+        if (record) {
+            try (Writer writer = Files.newBufferedWriter(baselineFile, StandardCharsets.UTF_8)) {
+                metrics.store(writer, "Recipe Vault render soak baseline, " + measured + " renders with " + threads + " threads");
+            }
+            System.out.println("Recorded baseline " + baselineFile);
+        } else if (Files.exists(baselineFile)) {
+            Properties baseline = new Properties();
+            try (Reader reader = Files.newBufferedReader(baselineFile, StandardCharsets.UTF_8)) {
+                baseline.load(reader);
+            }
+            checkHigher(problems, metrics, baseline, "p50Ms", tolerance, 0);
+            checkHigher(problems, metrics, baseline, "p99Ms", tolerance, 0);
+            checkHigher(problems, metrics, baseline, "gcPauseMaxMs", tolerance, GC_PAUSE_SLACK_MS);
+            checkLower(problems, metrics, baseline, "rendersPerSecond", tolerance);
+        } else {
+            System.out.println("No baseline at " + baselineFile + ", run with --record to create one");
+        }
+
+        if (!problems.isEmpty()) {
+            for (String problem : problems) {
+                System.err.println("FAIL: " + problem);
+            }
+            System.exit(1);
+        }
+        System.out.println("PASS");
+    }
+
+    private static void runRound(ExecutorService renderers, List<Recipe> recipes, int first, int count,
+                                 long[] latencies, AtomicInteger failures) {
+        List<Future<?>> renders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Recipe recipe = recipes.get((first + i) % recipes.size());
+            int slot = i;
+            renders.add(renderers.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    byte[] pdf = RecipePDFWriter.renderRecipe(recipe);
+                    if (pdf == null || pdf.length == 0) {
+                        failures.incrementAndGet();
+                    }
+                } catch (IOException | RuntimeException e) {
+                    failures.incrementAndGet();
+                    System.err.println("Render of " + recipe.getName() + " failed: " + e);
+                }
+                if (latencies != null) {
+                    latencies[slot] = System.nanoTime() - start;
+                }
+            }));
+        }
+        for (Future<?> render : renders) {
+            try {
+                render.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    // True if the value grew past the limit from the first sample to the last, and every sample in the
+    // second half of the run is above every sample in the first half
+    private static boolean rising(List<Sample> samples, ToLongFunction<Sample> value, long limit) {
+        int count = samples.size();
+        if (count < 3 || value.applyAsLong(samples.get(count - 1)) - value.applyAsLong(samples.get(0)) <= limit) {
+            return false;
+        }
+        long firstHalfMax = Long.MIN_VALUE;
+        long secondHalfMin = Long.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            long sample = value.applyAsLong(samples.get(i));
+            if (i < count / 2) {
+                firstHalfMax = Math.max(firstHalfMax, sample);
+            } else {
+                secondHalfMin = Math.min(secondHalfMin, sample);
+            }
+        }
+        return secondHalfMin > firstHalfMax;
+    }
+
+    // A cache hit must make the entry recently used, so it outlives entries added before it that were not hit
+    private static String checkRenderCacheEviction() throws IOException {
+        Path directory = Files.createTempDirectory("recipevault-soak-cache");
+        try {
+            byte[] pdf = new byte[100];
+            RecipeRenderCache cache = RecipeRenderCache.open(directory, 250);
+            cache.put("first", pdf);
+            cache.put("second", pdf);
+            Path copy = directory.resolve("copy.tmp");
+            cache.copyTo("first", copy);
+            cache.put("third", pdf);
+            if (!cache.copyTo("first", copy) || cache.copyTo("second", copy)) {
+                return "render cache evicted a recently hit entry instead of the least recently used one";
+            }
+            return null;
+        } finally {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    // A value may exceed the baseline by the tolerance, or by the absolute slack when that is more
+    private static void checkHigher(List<String> problems, Properties metrics, Properties baseline, String name,
+                                    double tolerance, double slack) {
+        double value = Double.parseDouble(metrics.getProperty(name));
+        String recorded = baseline.getProperty(name);
+        if (recorded != null && value > Math.max(Double.parseDouble(recorded) * (1 + tolerance),
+                Double.parseDouble(recorded) + slack)) {
+            problems.add(name + " regressed: " + metrics.getProperty(name) + ", baseline " + recorded);
+        }
+    }
+
+    private static void checkLower(List<String> problems, Properties metrics, Properties baseline, String name,
+                                   double tolerance) {
+        double value = Double.parseDouble(metrics.getProperty(name));
+        String recorded = baseline.getProperty(name);
+        if (recorded != null && value < Double.parseDouble(recorded) * (1 - tolerance)) {
+            problems.add(name + " regressed: " + metrics.getProperty(name) + ", baseline " + recorded);
+        }
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.recipevault;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ShoppingList is the combined ingredient list of a meal plan, grouped by supermarket aisle.
+ * It is created by {@link MealPlanner} and printed with {@link ShoppingListPDFWriter}.
+ */
+public class ShoppingList {
+
+    /**
+     * One line of the shopping list: an ingredient and the total amount to buy.
+     */
+    public static class Item {
+        private final String name;
+        private final String aisle;
+        private final String amount;
+
+        Item(String name, String aisle, String amount) {
+            this.name = name;
+            this.aisle = aisle;
+            this.amount = amount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getAisle() {
+            return aisle;
+        }
+
+        /**
+         * @return The amount in the most readable common unit, e.g. "1.2 kg" or "2 1/4 cups".
+         */
+        public String getAmount() {
+            return amount;
+        }
+
+        @Override
+        public String toString() {
+            return amount.isEmpty() ? name : name + " - " + amount;
+        }
+    }
+
+    private final String title;
+    private final List<String> recipeNames;
+    private final int servings;
+    private final Map<String, List<Item>> aisles;
+
+    ShoppingList(String title, List<String> recipeNames, int servings, Map<String, List<Item>> aisles) {
+        this.title = title;
+        this.recipeNames = Collections.unmodifiableList(new ArrayList<>(recipeNames));
+        this.servings = servings;
+        Map<String, List<Item>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Item>> entry : aisles.entrySet()) {
+            copy.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        this.aisles = Collections.unmodifiableMap(copy);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return The names of the planned recipes, in the order they were added.
+     */
+    public List<String> getRecipeNames() {
+        return recipeNames;
+    }
+
+    /**
+     * @return The total number of servings in the plan.
+     */
+    public int getServings() {
+        return servings;
+    }
+
+    /**
+     * @return The items grouped by aisle, aisles and items in alphabetical order, "Other" last.
+     */
+    public Map<String, List<Item>> getAisles() {
+        return aisles;
+    }
+
+    /**
+     * @return The number of items on the list.
+     */
+    public int size() {
+        int size = 0;
+        for (List<Item> items : aisles.values()) {
+            size += items.size();
+        }
+        return size;
+    }
+
+    /**
+     * Lays the list out as printable lines: an upper case heading for each aisle followed by its items.
+     *
+     * @return The lines of the list.
+     */
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, List<Item>> entry : aisles.entrySet()) {
+            lines.add(entry.getKey().toUpperCase(Locale.ROOT));
+            for (Item item : entry.getValue()) {
+                lines.add(item.toString());
+            }
+        }
+        return lines;
+    }
+}
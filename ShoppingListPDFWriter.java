@@ -0,0 +1,153 @@
+package org.example.recipevault;
+
+import org.apache.pdfbox.multipdf.LayerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.common.PDStream;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * ShoppingListPDFWriter prints a {@link ShoppingList} on the recipe template of a theme.
+ * The list lines go in the template's ingredient and direction fields and the planned recipes in the notes,
+ * using the same fill as {@link RecipePDFWriter}. A long list fills several copies of the template.
+ * Each template page is imported once as a Form XObject and drawn under the flattened fields of every copy,
+ * as {@link CardImposer} does, so the background is stored once however long the list is.
+ */
+public class ShoppingListPDFWriter {
+
+    // Lines per copy of the template: 15 ingredient fields, then 25 direction fields
+    private static final int INGREDIENT_FIELDS = 15;
+    private static final int DIRECTION_FIELDS = 25;
+    private static final int LINES_PER_COPY = INGREDIENT_FIELDS + DIRECTION_FIELDS;
+
+    private ShoppingListPDFWriter() {
+    }
+
+    /**
+     * Renders the shopping list.
+     *
+     * @param list  The shopping list.
+     * @param theme The theme whose template to print on.
+     * @return The PDF.
+     * @throws IOException If the theme is unknown, the template has no form, a field cannot be filled
+     *                     ({@link FormFillException}) or the PDF cannot be written. Nothing is shown to the user,
+     *                     so this can run off the FX thread.
+     */
+    public static byte[] render(ShoppingList list, String theme) throws IOException {
+        String templateFileName = RecipePDFWriter.templateFileName(theme);
+        if (templateFileName == null) {
+            throw new IOException("Invalid theme: " + theme);
+        }
+        byte[] template = RecipePDFWriter.loadTemplate(templateFileName);
+
+        List<List<String>> copies = paginate(list);
+        try (PDDocument document = new PDDocument();
+             PDDocument source = PDDocument.load(template)) {
+            LayerUtility backgroundImporter = new LayerUtility(document);
+            List<PDFormXObject> backgrounds = new ArrayList<>();
+            for (PDPage page : source.getPages()) {
+                backgrounds.add(backgroundImporter.importPageAsForm(source, page));
+            }
+
+            for (int i = 0; i < copies.size(); i++) {
+                try (PDDocument filled = PDDocument.load(template)) {
+                    PDAcroForm acroForm = filled.getDocumentCatalog().getAcroForm();
+                    if (acroForm == null) {
+                        throw new IOException("No form fields found in the PDF template.");
+                    }
+                    String title = i == 0 ? list.getTitle() : list.getTitle() + " (continued)";
+                    RecipePDFWriter.fillForm(filled, acroForm, fieldValues(list, title, copies.get(i)));
+
+                    // Blank the pages so flattening leaves only the field appearances
+                    for (PDPage page : filled.getPages()) {
+                        page.setContents(new PDStream(filled));
+                        page.setResources(new PDResources());
+                    }
+                    acroForm.flatten();
+
+                    // A fresh importer per copy: its clone cache would otherwise keep every copy's objects alive
+                    LayerUtility importer = new LayerUtility(document);
+                    for (int p = 0; p < filled.getNumberOfPages(); p++) {
+                        PDPage filledPage = filled.getPage(p);
+                        filledPage.setAnnotations(Collections.<PDAnnotation>emptyList());
+                        PDFormXObject fields = importer.importPageAsForm(filled, filledPage);
+                        addPage(document, filledPage.getCropBox(), backgrounds.get(p), fields);
+                    }
+                }
+            }
+
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            document.save(output);
+            return output.toByteArray();
+        }
+    }
+
+    // A page the size of the template page with the background drawn under the field layer; imported pages
+    // have their visible area moved to the origin
+    private static void addPage(PDDocument document, PDRectangle box, PDFormXObject background, PDFormXObject fields)
+            throws IOException {
+        PDPage page = new PDPage(new PDRectangle(box.getWidth(), box.getHeight()));
+        document.addPage(page);
+        try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+            content.drawForm(background);
+            content.drawForm(fields);
+        }
+    }
+
+    // Splits the list into template copies, never leaving an aisle heading as the last line of a copy
+    static List<List<String>> paginate(ShoppingList list) {
+        List<List<String>> copies = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        for (Map.Entry<String, List<ShoppingList.Item>> aisle : list.getAisles().entrySet()) {
+            if (current.size() >= LINES_PER_COPY - 1) {
+                copies.add(current);
+                current = new ArrayList<>();
+            }
+            current.add(aisle.getKey().toUpperCase(Locale.ROOT));
+            for (ShoppingList.Item item : aisle.getValue()) {
+                if (current.size() == LINES_PER_COPY) {
+                    copies.add(current);
+                    current = new ArrayList<>();
+                }
+                current.add(item.toString());
+            }
+        }
+        if (!current.isEmpty() || copies.isEmpty()) {
+            copies.add(current);
+        }
+        return copies;
+    }
+
+    private static Map<String, String> fieldValues(ShoppingList list, String title, List<String> lines) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("Recipe", title);
+        values.put("Author", "");
+        values.put("Prep Time", "");
+        values.put("Cook Time", "");
+        values.put("Total Time", "");
+        values.put("Serves", Integer.toString(list.getServings()));
+        values.put("Meal Type", "Shopping List");
+
+        for (int i = 0; i < lines.size(); i++) {
+            String field = i < INGREDIENT_FIELDS ? "Ingredient" + (i + 1) : "Direction" + (i - INGREDIENT_FIELDS + 1);
+            values.put(field, lines.get(i));
+        }
+
+        values.put("Notes", "Recipes: " + String.join(", ", list.getRecipeNames()));
+        return values;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.recipevault;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * StartupTimer records how long each startup phase takes, measured from JVM process start.
+ * The report is printed when the application is run with --startup-report
+ * or the recipevault.startupReport system property.
+ */
+public class StartupTimer {
+
+    private static final long startNanos = System.nanoTime();
+    private static final List<String> phases = new ArrayList<>();
+    private static final List<Long> phaseNanos = new ArrayList<>();
+    private static boolean enabled = Boolean.getBoolean("recipevault.startupReport");
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Turns the startup report on.
+     */
+    public static synchronized void enable() {
+        enabled = true;
+    }
+
+    /**
+     * Records the end of a startup phase.
+     *
+     * @param phase The name of the phase that just finished.
+     */
+    public static synchronized void mark(String phase) {
+        phases.add(phase);
+        phaseNanos.add(System.nanoTime());
+    }
+
+    /**
+     * Prints the time of each recorded phase, if the report is turned on.
+     */
+    public static synchronized void report() {
+        if (!enabled) {
+            return;
+        }
+
+        // Time spent before this class was loaded, covering JVM boot and class loading up to main()
+        long bootMillis = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis() - elapsedMillis(System.nanoTime()))
+                .orElse(0L);
+
+        System.out.println("Recipe Vault startup report");
+        System.out.printf(Locale.ROOT, "  %-28s %6d ms%n", "JVM start to main", bootMillis);
+        long previous = startNanos;
+        for (int i = 0; i < phases.size(); i++) {
+            long nanos = phaseNanos.get(i);
+            System.out.printf(Locale.ROOT, "  %-28s %6d ms  (at %d ms)%n",
+                    phases.get(i), (nanos - previous) / 1_000_000, bootMillis + elapsedMillis(nanos));
+            previous = nanos;
+        }
+    }
+
+    private static long elapsedMillis(long nanos) {
+        return (nanos - startNanos) / 1_000_000;
+    }
+}
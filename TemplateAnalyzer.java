@@ -0,0 +1,393 @@
+package org.example.recipevault;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationWidget;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDTextField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDVariableText;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TemplateAnalyzer reads the form of a PDF template once and compiles it into a {@link TemplateDescriptor}:
+ * which of the fields Recipe Vault fills are present or missing, and the rectangle, font and character
+ * capacity of each field. Descriptors are kept on disk next to the recipe store, keyed by template file name
+ * and checked against the template hash, so later runs load them without parsing the template again.
+ * Run as a main class it prints the report for the built-in themes or for a new template file.
+ */
+public class TemplateAnalyzer {
+
+    /** Directory holding the compiled descriptors, next to the recipe store. */
+    public static final Path DEFAULT_DIRECTORY = RecipeStore.DEFAULT_DIRECTORY.resolveSibling("template-cache");
+
+    private static final String FILE_EXTENSION = ".rvt";
+
+    // Text used to measure the width of an ordinary character in a field's font
+    private static final String SAMPLE_TEXT = "The quick brown fox jumps over the lazy dog 1234567890";
+
+    // Size used to measure fields whose font size is 0 (auto), the size PDFBox fills them with
+    private static final float AUTO_FONT_SIZE = 12;
+
+    // Border and padding PDFBox leaves on each side of the text in a field
+    private static final float INSET = 2;
+
+    private static final Map<String, TemplateDescriptor> descriptors = new ConcurrentHashMap<>();
+
+    private TemplateAnalyzer() {
+    }
+
+    /**
+     * Returns the descriptor of a theme's template, compiling it on first use.
+     *
+     * @param theme The theme name.
+     * @return The descriptor.
+     * @throws IOException If the theme is unknown or its template cannot be read.
+     */
+    public static TemplateDescriptor forTheme(String theme) throws IOException {
+        String templateFileName = RecipePDFWriter.templateFileName(theme);
+        if (templateFileName == null) {
+            throw new IOException("Invalid theme: " + theme);
+        }
+        return forTemplate(templateFileName);
+    }
+
+    /**
+     * Returns the descriptor of a bundled template: from memory, from the compiled file on disk if it was
+     * compiled from the same template contents, or else by analyzing the template and saving the result.
+     *
+     * @param templateFileName The template file name.
+     * @return The descriptor.
+     * @throws IOException If the template cannot be read.
+     */
+    public static TemplateDescriptor forTemplate(String templateFileName) throws IOException {
+        TemplateDescriptor descriptor = descriptors.get(templateFileName);
+        if (descriptor != null) {
+            return descriptor;
+        }
+
+        String hash = RecipePDFWriter.templateHash(templateFileName);
+        Path file = DEFAULT_DIRECTORY.resolve(templateFileName + FILE_EXTENSION);
+        descriptor = load(file);
+        if (descriptor == null || !descriptor.getTemplateHash().equals(hash)) {
+            descriptor = analyze(templateFileName, RecipePDFWriter.loadTemplate(templateFileName), hash);
+            try {
+                save(descriptor, file);
+            } catch (IOException e) {
+                // Keep going with the descriptor in memory, the next run analyzes the template again
+                System.err.println("Could not save template descriptor " + file + ": " + e.getMessage());
+            }
+        }
+        descriptors.put(templateFileName, descriptor);
+        return descriptor;
+    }
+
+    /**
+     * Analyzes the form of a template.
+     *
+     * @param templateName The template file name, used in messages.
+     * @param pdf          The template file contents.
+     * @param hash         The hash of the template contents.
+     * @return The descriptor; a template without a form has every expected field missing.
+     * @throws IOException If the PDF cannot be parsed.
+     */
+    public static TemplateDescriptor analyze(String templateName, byte[] pdf, String hash) throws IOException {
+        List<String> expected = RecipePDFWriter.templateFieldNames();
+        Set<String> expectedNames = new HashSet<>(expected);
+
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm();
+            List<PDField> fields = new ArrayList<>();
+            if (acroForm != null) {
+                for (PDField field : acroForm.getFieldTree()) {
+                    if (!field.getWidgets().isEmpty()) {
+                        fields.add(field);
+                    }
+                }
+            }
+
+            // Widgets do not always point back to their page, so map them from the page annotations
+            Map<COSDictionary, Integer> widgetPages = new HashMap<>();
+            int pageIndex = 0;
+            for (PDPage page : document.getPages()) {
+                for (PDAnnotation annotation : page.getAnnotations()) {
+                    widgetPages.put(annotation.getCOSObject(), pageIndex);
+                }
+                pageIndex++;
+            }
+
+            int count = fields.size();
+            String[] names = new String[count];
+            int[] pages = new int[count];
+            float[] rectangles = new float[count * 4];
+            String[] fonts = new String[count];
+            float[] fontSizes = new float[count];
+            int[] capacities = new int[count];
+            byte[] flags = new byte[count];
+            Set<String> present = new HashSet<>();
+
+            for (int i = 0; i < count; i++) {
+                PDField field = fields.get(i);
+                PDAnnotationWidget widget = field.getWidgets().get(0);
+                PDRectangle rectangle = widget.getRectangle();
+                if (rectangle == null) {
+                    rectangle = new PDRectangle(0, 0);
+                }
+                boolean multiline = field instanceof PDTextField && ((PDTextField) field).isMultiline();
+
+                names[i] = field.getFullyQualifiedName();
+                present.add(names[i]);
+                Integer page = widgetPages.get(widget.getCOSObject());
+                pages[i] = page == null ? 0 : page;
+                rectangles[i * 4] = rectangle.getLowerLeftX();
+                rectangles[i * 4 + 1] = rectangle.getLowerLeftY();
+                rectangles[i * 4 + 2] = rectangle.getWidth();
+                rectangles[i * 4 + 3] = rectangle.getHeight();
+                flags[i] = TemplateDescriptor.flags(multiline, expectedNames.contains(names[i]));
+
+                String appearance = field instanceof PDVariableText ? ((PDVariableText) field).getDefaultAppearance() : "";
+                fonts[i] = fontName(appearance);
+                fontSizes[i] = fontSize(appearance);
+                PDFont font = acroForm.getDefaultResources() == null || fonts[i].isEmpty()
+                        ? null : loadFont(acroForm.getDefaultResources(), fonts[i]);
+                capacities[i] = capacity(font, fontSizes[i] > 0 ? fontSizes[i] : AUTO_FONT_SIZE,
+                        rectangle.getWidth(), rectangle.getHeight(), multiline);
+            }
+
+            List<String> missing = new ArrayList<>();
+            for (String name : expected) {
+                if (!present.contains(name)) {
+                    missing.add(name);
+                }
+            }
+            return new TemplateDescriptor(templateName, hash, document.getNumberOfPages(), names, pages, rectangles,
+                    fonts, fontSizes, capacities, flags, missing);
+        }
+    }
+
+    /**
+     * Describes a template in readable lines: the expected fields, one per line, then the missing
+     * fields and the template's own fields.
+     *
+     * @param descriptor The descriptor.
+     * @return The report lines.
+     */
+    public static List<String> report(TemplateDescriptor descriptor) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "%s: %d pages, %d fields", descriptor.getTemplateName(),
+                descriptor.getPageCount(), descriptor.size()));
+        List<String> extra = new ArrayList<>();
+        for (String name : RecipePDFWriter.templateFieldNames()) {
+            int field = descriptor.indexOf(name);
+            if (field < 0) {
+                continue;
+            }
+            float[] rectangle = descriptor.getRectangle(field);
+            lines.add(String.format(Locale.ROOT, "  %-12s page %d at %.0f,%.0f size %.0fx%.0f  /%s %s  %d chars%s",
+                    name, descriptor.getPage(field) + 1, rectangle[0], rectangle[1], rectangle[2], rectangle[3],
+                    descriptor.getFont(field),
+                    descriptor.getFontSize(field) > 0 ? String.format(Locale.ROOT, "%.0f pt", descriptor.getFontSize(field)) : "auto",
+                    descriptor.getCapacity(field), descriptor.isMultiline(field) ? ", multiline" : ""));
+        }
+        for (int field = 0; field < descriptor.size(); field++) {
+            if (!descriptor.isExpected(field)) {
+                extra.add(descriptor.getName(field));
+            }
+        }
+        lines.add(descriptor.getMissingFields().isEmpty() ? "  No fields missing"
+                : "  Missing: " + String.join(", ", descriptor.getMissingFields()));
+        if (!extra.isEmpty()) {
+            lines.add("  Not filled by Recipe Vault: " + String.join(", ", extra));
+        }
+        return lines;
+    }
+
+    /**
+     * Reads a compiled descriptor.
+     *
+     * @param file The descriptor file.
+     * @return The descriptor, or null if the file is missing, unreadable or from another format version.
+     */
+    public static TemplateDescriptor load(Path file) {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return TemplateDescriptor.read(input);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a compiled descriptor, replacing the file atomically.
+     *
+     * @param descriptor The descriptor.
+     * @param file       The descriptor file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(TemplateDescriptor descriptor, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                descriptor.write(output);
+            }
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    // "/Lucid 12 Tf 0 g" -> "Lucid"
+    private static String fontName(String appearance) {
+        if (appearance == null) {
+            return "";
+        }
+        String[] tokens = appearance.trim().split("\\s+");
+        for (int i = 0; i + 2 < tokens.length; i++) {
+            if (tokens[i].startsWith("/") && tokens[i + 2].equals("Tf")) {
+                return tokens[i].substring(1);
+            }
+        }
+        return "";
+    }
+
+    // "/Lucid 12 Tf 0 g" -> 12
+    private static float fontSize(String appearance) {
+        if (appearance == null) {
+            return 0;
+        }
+        String[] tokens = appearance.trim().split("\\s+");
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].equals("Tf")) {
+                try {
+                    return Float.parseFloat(tokens[i - 1]);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static PDFont loadFont(PDResources resources, String name) {
+        try {
+            return resources.getFont(COSName.getPDFName(name));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Characters of ordinary text that fit: the field width over the average width of the sample text,
+    // times the number of lines for multiline fields
+    private static int capacity(PDFont font, float fontSize, float width, float height, boolean multiline) {
+        float charWidth = 0.5f;
+        float lineHeight = 1.2f;
+        if (font != null) {
+            try {
+                charWidth = font.getStringWidth(SAMPLE_TEXT) / SAMPLE_TEXT.length() / 1000;
+            } catch (IOException | IllegalArgumentException e) {
+                // Subset fonts may lack some sample glyphs
+                float average = font.getAverageFontWidth();
+                if (average > 0) {
+                    charWidth = average / 1000;
+                }
+            }
+            try {
+                float box = font.getBoundingBox().getHeight() / 1000;
+                if (box > 0) {
+                    lineHeight = box;
+                }
+            } catch (IOException e) {
+                // Keep the usual line height
+            }
+        }
+        if (charWidth <= 0) {
+            charWidth = 0.5f;
+        }
+        int perLine = (int) Math.max(0, (width - 2 * INSET) / (charWidth * fontSize));
+        if (!multiline) {
+            return perLine;
+        }
+        int lines = (int) Math.max(1, (height - 2 * INSET) / (lineHeight * fontSize));
+        return perLine * lines;
+    }
+
+    /**
+     * Prints the field report of templates and compiles their descriptors.
+     * Usage: TemplateAnalyzer [--out descriptor.rvt] [theme or template.pdf]...
+     * Without arguments every built-in theme is checked. Exits with status 1 if a template lacks a field.
+     *
+     * @param args The options and templates.
+     * @throws IOException If a template cannot be read or a descriptor cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = null;
+        List<String> templates = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--out")) {
+                output = Paths.get(args[++i]);
+            } else {
+                templates.add(args[i]);
+            }
+        }
+        if (templates.isEmpty()) {
+            templates.add("Spring");
+            templates.add("Summer");
+            templates.add("Fall");
+            templates.add("Winter");
+        }
+
+        boolean complete = true;
+        for (String template : templates) {
+            long start = System.nanoTime();
+            TemplateDescriptor descriptor;
+            if (template.toLowerCase(Locale.ROOT).endsWith(".pdf")) {
+                Path file = Paths.get(template);
+                byte[] pdf = Files.readAllBytes(file);
+                descriptor = analyze(file.getFileName().toString(), pdf, Recipe.toHex(Recipe.sha256().digest(pdf)));
+            } else {
+                descriptor = forTheme(template);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            for (String line : report(descriptor)) {
+                System.out.println(line);
+            }
+            System.out.printf(Locale.ROOT, "  (%.2f ms)%n", elapsed / 1e6);
+            complete &= descriptor.getMissingFields().isEmpty();
+            if (output != null) {
+                save(descriptor, output);
+                System.out.println("Saved " + output);
+            }
+        }
+        if (!complete) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package org.example.recipevault;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * TemplateDescriptor is the compiled description of a PDF template's form, produced by {@link TemplateAnalyzer}:
+ * which of the fields Recipe Vault fills are present, where each field is, its font, and how many characters
+ * fit in it. It is stored in a small binary file, so it can be read back without parsing the PDF again.
+ * Field data is kept in parallel arrays indexed by field number.
+ */
+public class TemplateDescriptor {
+
+    // "RVTD" followed by the format version; a descriptor written by another version is analyzed again
+    private static final int MAGIC = 0x52565444;
+    private static final int VERSION = 1;
+
+    private static final int FLAG_MULTILINE = 1;
+    private static final int FLAG_EXPECTED = 2;
+
+    private final String templateName;
+    private final String templateHash;
+    private final int pageCount;
+
+    private final String[] names;
+    private final int[] pages;
+    // x, y, width and height of each field, four floats per field
+    private final float[] rectangles;
+    private final String[] fonts;
+    private final float[] fontSizes;
+    private final int[] capacities;
+    private final byte[] flags;
+    private final List<String> missing;
+
+    private final Map<String, Integer> indexes;
+
+    TemplateDescriptor(String templateName, String templateHash, int pageCount, String[] names, int[] pages,
+                       float[] rectangles, String[] fonts, float[] fontSizes, int[] capacities, byte[] flags,
+                       List<String> missing) {
+        this.templateName = templateName;
+        this.templateHash = templateHash;
+        this.pageCount = pageCount;
+        this.names = names;
+        this.pages = pages;
+        this.rectangles = rectangles;
+        this.fonts = fonts;
+        this.fontSizes = fontSizes;
+        this.capacities = capacities;
+        this.flags = flags;
+        this.missing = Collections.unmodifiableList(missing);
+        this.indexes = new HashMap<>(names.length * 2);
+        for (int i = 0; i < names.length; i++) {
+            indexes.put(names[i], i);
+        }
+    }
+
+    static byte flags(boolean multiline, boolean expected) {
+        return (byte) ((multiline ? FLAG_MULTILINE : 0) | (expected ? FLAG_EXPECTED : 0));
+    }
+
+    /**
+     * @return The template file name.
+     */
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * @return The hash of the template file the descriptor was compiled from.
+     */
+    public String getTemplateHash() {
+        return templateHash;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * @return The number of form fields in the template, including ones Recipe Vault does not fill.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param name The field name.
+     * @return The field number, or -1 if the template has no such field.
+     */
+    public int indexOf(String name) {
+        Integer index = indexes.get(name);
+        return index == null ? -1 : index;
+    }
+
+    public String getName(int field) {
+        return names[field];
+    }
+
+    /**
+     * @param field The field number.
+     * @return The zero-based page the field is on.
+     */
+    public int getPage(int field) {
+        return pages[field];
+    }
+
+    /**
+     * @param field The field number.
+     * @return The field rectangle in PDF points: x, y, width and height.
+     */
+    public float[] getRectangle(int field) {
+        float[] rectangle = new float[4];
+        System.arraycopy(rectangles, field * 4, rectangle, 0, 4);
+        return rectangle;
+    }
+
+    /**
+     * @param field The field number.
+     * @return The font resource name from the field's default appearance, e.g. "Helv".
+     */
+    public String getFont(int field) {
+        return fonts[field];
+    }
+
+    /**
+     * @param field The field number.
+     * @return The font size, or 0 if the viewer sizes the text to fit.
+     */
+    public float getFontSize(int field) {
+        return fontSizes[field];
+    }
+
+    /**
+     * @param field The field number.
+     * @return About how many characters of ordinary text fit in the field.
+     */
+    public int getCapacity(int field) {
+        return capacities[field];
+    }
+
+    public boolean isMultiline(int field) {
+        return (flags[field] & FLAG_MULTILINE) != 0;
+    }
+
+    /**
+     * @param field The field number.
+     * @return True if Recipe Vault fills the field, false for fields of the template's own.
+     */
+    public boolean isExpected(int field) {
+        return (flags[field] & FLAG_EXPECTED) != 0;
+    }
+
+    /**
+     * @return The fields Recipe Vault fills that the template does not have, in fill order.
+     */
+    public List<String> getMissingFields() {
+        return missing;
+    }
+
+    /**
+     * Checks the values about to be filled into the template.
+     *
+     * @param values   The values keyed by field name, as from {@link RecipePDFWriter#fieldValues(Recipe)}.
+     * @param problems Receives a message for each value that would be lost because the template has no field for it.
+     * @param warnings Receives a message for each value longer than its field.
+     */
+    public void check(Map<String, String> values, List<String> problems, List<String> warnings) {
+        List<String> lost = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            int field = indexOf(entry.getKey());
+            if (field < 0) {
+                lost.add(entry.getKey());
+            } else if (value.length() > capacities[field]) {
+                warnings.add(String.format(Locale.ROOT, "%s is longer than its field (%d characters, about %d fit)",
+                        entry.getKey(), value.length(), capacities[field]));
+            }
+        }
+        if (!lost.isEmpty()) {
+            problems.add(templateName + " has no field for " + String.join(", ", lost));
+        }
+    }
+
+    /**
+     * Writes the descriptor in its binary form.
+     *
+     * @param output The stream to write to.
+     * @throws IOException If the stream cannot be written.
+     */
+    public void write(DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeUTF(templateName);
+        output.writeUTF(templateHash);
+        output.writeInt(pageCount);
+        output.writeInt(names.length);
+        for (int i = 0; i < names.length; i++) {
+            output.writeUTF(names[i]);
+            output.writeByte(flags[i]);
+            output.writeShort(pages[i]);
+            for (int k = 0; k < 4; k++) {
+                output.writeFloat(rectangles[i * 4 + k]);
+            }
+            output.writeUTF(fonts[i]);
+            output.writeFloat(fontSizes[i]);
+            output.writeInt(capacities[i]);
+        }
+        output.writeInt(missing.size());
+        for (String name : missing) {
+            output.writeUTF(name);
+        }
+    }
+
+    /**
+     * Reads a descriptor written by {@link #write(DataOutputStream)}.
+     *
+     * @param input The stream to read from.
+     * @return The descriptor, or null if it was written in another format version.
+     * @throws IOException If the stream cannot be read or is not a descriptor.
+     */
+    public static TemplateDescriptor read(DataInputStream input) throws IOException {
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not a template descriptor");
+        }
+        if (input.readInt() != VERSION) {
+            return null;
+        }
+        String templateName = input.readUTF();
+        String templateHash = input.readUTF();
+        int pageCount = input.readInt();
+        int count = input.readInt();
+        String[] names = new String[count];
+        int[] pages = new int[count];
+        float[] rectangles = new float[count * 4];
+        String[] fonts = new String[count];
+        float[] fontSizes = new float[count];
+        int[] capacities = new int[count];
+        byte[] flags = new byte[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = input.readUTF();
+            flags[i] = input.readByte();
+            pages[i] = input.readShort();
+            for (int k = 0; k < 4; k++) {
+                rectangles[i * 4 + k] = input.readFloat();
+            }
+            fonts[i] = input.readUTF();
+            fontSizes[i] = input.readFloat();
+            capacities[i] = input.readInt();
+        }
+        int missingCount = input.readInt();
+        List<String> missing = new ArrayList<>(missingCount);
+        for (int i = 0; i < missingCount; i++) {
+            missing.add(input.readUTF());
+        }
+        return new TemplateDescriptor(templateName, templateHash, pageCount, names, pages, rectangles, fonts,
+                fontSizes, capacities, flags, missing);
+    }
+}
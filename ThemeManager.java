@@ -0,0 +1,92 @@
+package org.example.recipevault;
+
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ThemeManager attaches the shared Recipe Vault stylesheet and switches the seasonal palette.
+ * Each palette is a theme-* style class defining the looked-up colors used by the stylesheet,
+ * so changing the theme only swaps one style class on each registered root.
+ * Roots are held weakly, so closed dialogs are not kept alive or restyled.
+ */
+public class ThemeManager {
+
+    private static final URL STYLESHEET = ThemeManager.class.getResource("/recipevault.css");
+
+    static {
+        if (STYLESHEET == null) {
+            System.err.println("Stylesheet /recipevault.css not found on the classpath, windows and dialogs are unstyled");
+        }
+    }
+
+    private static final List<WeakReference<Parent>> themedRoots = new ArrayList<>();
+    private static String themeClass;
+
+    private ThemeManager() {
+    }
+
+    /**
+     * Attaches the stylesheet to a scene and keeps its root in step with the current theme.
+     *
+     * @param scene The scene to style.
+     */
+    public static void apply(Scene scene) {
+        if (STYLESHEET != null) {
+            scene.getStylesheets().add(STYLESHEET.toExternalForm());
+        }
+        register(scene.getRoot());
+    }
+
+    /**
+     * Attaches the stylesheet to a node that is not in a styled scene, such as a dialog pane,
+     * and keeps it in step with the current theme.
+     *
+     * @param root       The node to style.
+     * @param styleClass The style class giving the node its base look.
+     */
+    public static void apply(Parent root, String styleClass) {
+        if (STYLESHEET != null) {
+            root.getStylesheets().add(STYLESHEET.toExternalForm());
+        }
+        root.getStyleClass().add(styleClass);
+        register(root);
+    }
+
+    /**
+     * Switches every styled scene and dialog to the palette of a PDF theme.
+     *
+     * @param theme The theme name (Spring, Summer, Fall or Winter), or null for the default palette.
+     */
+    public static void setTheme(String theme) {
+        String newClass = theme == null ? null : "theme-" + theme.toLowerCase(Locale.ROOT);
+        for (Iterator<WeakReference<Parent>> it = themedRoots.iterator(); it.hasNext(); ) {
+            Parent root = it.next().get();
+            if (root == null) {
+                it.remove();
+                continue;
+            }
+            if (themeClass != null) {
+                root.getStyleClass().remove(themeClass);
+            }
+            if (newClass != null) {
+                root.getStyleClass().add(newClass);
+            }
+        }
+        themeClass = newClass;
+    }
+
+    private static void register(Parent root) {
+        themedRoots.removeIf(reference -> reference.get() == null);
+        themedRoots.add(new WeakReference<>(root));
+        if (themeClass != null) {
+            root.getStyleClass().add(themeClass);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package org.example.recipevault;
+
+import org.apache.fontbox.ttf.CmapLookup;
+import org.apache.fontbox.ttf.TTFParser;
+import org.apache.fontbox.ttf.TTFSubsetter;
+import org.apache.fontbox.ttf.TrueTypeFont;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType0Font;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.apache.pdfbox.pdmodel.interactive.form.PDField;
+import org.apache.pdfbox.pdmodel.interactive.form.PDVariableText;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * UnicodeFontEmbedder swaps the template font of a form field for a Unicode font when the template font
+ * has no glyphs for the field's text, for example recipes written in Nepali, Chinese or Cyrillic.
+ *
+ * Only the glyphs used in the document are embedded. Subsets are cached by font and character set,
+ * so a batch of recipes sharing the same characters builds each subset once.
+ * Complex scripts such as Devanagari are embedded without glyph shaping, as PDFBox does not shape text.
+ */
+public class UnicodeFontEmbedder {
+
+    // Fallback fonts in order of preference, the first one covering all of a field's text is used
+    private static final String[] FONT_FILE_NAMES = {
+            "NotoSans-Regular.ttf", "NotoSansDevanagari-Regular.ttf", "NotoSansSC-Regular.ttf",
+            "DejaVuSans.ttf", "Nirmala.ttf", "arialuni.ttf", "arial.ttf"
+    };
+
+    // Searched after the /fonts/ resource folder
+    private static final String[] FONT_DIRECTORIES = {
+            System.getProperty("recipevault.fontDir", "fonts"),
+            System.getProperty("user.home") + "/.fonts",
+            "/usr/share/fonts/truetype/noto",
+            "/usr/share/fonts/truetype/dejavu",
+            "/usr/share/fonts/noto",
+            "/Library/Fonts",
+            "C:/Windows/Fonts"
+    };
+
+    private static final int MAX_CACHED_SUBSETS = 256;
+
+    private static final Pattern DA_FONT = Pattern.compile("/([^\\s/]+)\\s+([\\d.]+)\\s+Tf");
+
+    private static List<FallbackFont> fallbackFonts;
+
+    // Font file and character set to subset font bytes, least recently used evicted first
+    private static final Map<String, byte[]> subsetCache = Collections.synchronizedMap(
+            new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                    return size() > MAX_CACHED_SUBSETS;
+                }
+            });
+
+    private UnicodeFontEmbedder() {
+    }
+
+    /**
+     * Points every field whose text the template font cannot display at an embedded Unicode font subset.
+     * Must be called before the field values are set.
+     *
+     * @param document The document being filled.
+     * @param acroForm The form of the document.
+     * @param values   The values about to be filled in, keyed by field name.
+     * @throws IOException If a fallback font cannot be read or embedded.
+     */
+    public static void embedFonts(PDDocument document, PDAcroForm acroForm, Map<String, String> values) throws IOException {
+        Map<FallbackFont, Set<Integer>> codePointsByFont = new LinkedHashMap<>();
+        Map<PDVariableText, FallbackFont> fontByField = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String value = entry.getValue();
+            PDField field = acroForm.getField(entry.getKey());
+            if (value == null || value.isEmpty() || !(field instanceof PDVariableText)) {
+                continue;
+            }
+
+            PDVariableText textField = (PDVariableText) field;
+            PDFont templateFont = templateFont(acroForm, textField);
+            if (templateFont != null && canEncode(templateFont, value)) {
+                continue;
+            }
+
+            Set<Integer> codePoints = codePoints(value);
+            FallbackFont fallback = findFallback(codePoints);
+            if (fallback == null) {
+                continue;
+            }
+            fontByField.put(textField, fallback);
+            codePointsByFont.computeIfAbsent(fallback, font -> new TreeSet<>()).addAll(codePoints);
+        }
+
+        if (fontByField.isEmpty()) {
+            return;
+        }
+
+        PDResources resources = acroForm.getDefaultResources();
+        if (resources == null) {
+            resources = new PDResources();
+            acroForm.setDefaultResources(resources);
+        }
+
+        Map<FallbackFont, COSName> resourceNames = new HashMap<>();
+        for (Map.Entry<FallbackFont, Set<Integer>> entry : codePointsByFont.entrySet()) {
+            byte[] subset = subset(entry.getKey(), entry.getValue());
+            // The bytes are already a subset, so embed them as they are
+            PDType0Font font = PDType0Font.load(document, new ByteArrayInputStream(subset), false);
+            COSName name = COSName.getPDFName("RVUni" + resourceNames.size());
+            resources.put(name, font);
+            resourceNames.put(entry.getKey(), name);
+        }
+
+        for (Map.Entry<PDVariableText, FallbackFont> entry : fontByField.entrySet()) {
+            PDVariableText field = entry.getKey();
+            field.setDefaultAppearance(replaceFont(field.getDefaultAppearance(), resourceNames.get(entry.getValue())));
+        }
+    }
+
+    // Font named in the field's default appearance, such as /Lucid in "/Lucid 12 Tf 0 g"
+    private static PDFont templateFont(PDAcroForm acroForm, PDVariableText field) {
+        Matcher matcher = DA_FONT.matcher(field.getDefaultAppearance());
+        PDResources resources = acroForm.getDefaultResources();
+        if (!matcher.find() || resources == null) {
+            return null;
+        }
+        try {
+            return resources.getFont(COSName.getPDFName(matcher.group(1)));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String replaceFont(String defaultAppearance, COSName fontName) {
+        Matcher matcher = DA_FONT.matcher(defaultAppearance);
+        if (matcher.find()) {
+            return defaultAppearance.substring(0, matcher.start())
+                    + "/" + fontName.getName() + " " + matcher.group(2) + " Tf"
+                    + defaultAppearance.substring(matcher.end());
+        }
+        return "/" + fontName.getName() + " 0 Tf 0 g " + defaultAppearance;
+    }
+
+    // Line breaks are never encoded, multi-line fields are split into lines before drawing
+    private static boolean canEncode(PDFont font, String value) {
+        try {
+            for (String line : value.split("\\R")) {
+                font.encode(line);
+            }
+            return true;
+        } catch (IllegalArgumentException | IOException e) {
+            return false;
+        }
+    }
+
+    private static Set<Integer> codePoints(String value) {
+        Set<Integer> codePoints = new TreeSet<>();
+        value.codePoints().filter(codePoint -> codePoint >= ' ').forEach(codePoints::add);
+        return codePoints;
+    }
+
+    private static FallbackFont findFallback(Set<Integer> codePoints) {
+        for (FallbackFont font : fallbackFonts()) {
+            if (font.covers(codePoints)) {
+                return font;
+            }
+        }
+        return null;
+    }
+
+    private static byte[] subset(FallbackFont font, Set<Integer> codePoints) throws IOException {
+        StringBuilder key = new StringBuilder(font.name).append(':');
+        for (int codePoint : codePoints) {
+            key.appendCodePoint(codePoint);
+        }
+
+        byte[] subset = subsetCache.get(key.toString());
+        if (subset == null) {
+            subset = font.subset(codePoints);
+            subsetCache.put(key.toString(), subset);
+        }
+        return subset;
+    }
+
+    // Finds the fallback fonts available on this machine, once
+    private static synchronized List<FallbackFont> fallbackFonts() {
+        if (fallbackFonts != null) {
+            return fallbackFonts;
+        }
+
+        fallbackFonts = new ArrayList<>();
+        for (String fileName : FONT_FILE_NAMES) {
+            try {
+                TrueTypeFont font = loadFont(fileName);
+                if (font != null && font.getUnicodeCmapLookup() != null) {
+                    fallbackFonts.add(new FallbackFont(fileName, font));
+                }
+            } catch (IOException e) {
+                // Unreadable or unsupported font file, try the next one
+            }
+        }
+        return fallbackFonts;
+    }
+
+    private static TrueTypeFont loadFont(String fileName) throws IOException {
+        try (InputStream resource = UnicodeFontEmbedder.class.getResourceAsStream("/fonts/" + fileName)) {
+            if (resource != null) {
+                return new TTFParser().parse(resource);
+            }
+        }
+        for (String directory : FONT_DIRECTORIES) {
+            File file = new File(directory, fileName);
+            if (file.isFile()) {
+                return new TTFParser().parse(file);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A TrueType font that can stand in for the template font.
+     * Font tables are read lazily from the file, so access is synchronized.
+     */
+    private static class FallbackFont {
+        private final String name;
+        private final TrueTypeFont font;
+        private final CmapLookup cmap;
+
+        FallbackFont(String name, TrueTypeFont font) throws IOException {
+            this.name = name;
+            this.font = font;
+            this.cmap = font.getUnicodeCmapLookup();
+        }
+
+        synchronized boolean covers(Set<Integer> codePoints) {
+            for (int codePoint : codePoints) {
+                if (cmap.getGlyphId(codePoint) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        synchronized byte[] subset(Set<Integer> codePoints) throws IOException {
+            TTFSubsetter subsetter = new TTFSubsetter(font);
+            subsetter.addAll(codePoints);
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            subsetter.writeToStream(output);
+            return output.toByteArray();
+        }
+    }
+}
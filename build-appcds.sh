@@ -0,0 +1,21 @@
+#!/bin/sh
+# Builds an AppCDS archive of the classes Recipe Vault loads at startup (JDK 13 or later).
+#
+# The archive is tied to the JDK and class path it was built with, so run this again after
+# upgrading Java or rebuilding the application.
+#
+# Usage: JAVAFX_LIB=/path/to/javafx-sdk/lib RECIPEVAULT_CP=target/classes:pdfbox.jar:... ./build-appcds.sh
+set -e
+
+ARCHIVE=${ARCHIVE:-recipevault.jsa}
+: "${JAVAFX_LIB:?Set JAVAFX_LIB to the lib folder of the JavaFX SDK}"
+: "${RECIPEVAULT_CP:?Set RECIPEVAULT_CP to the application class path}"
+
+# Training run: starts the UI, preloads PDF export, prints the startup report and exits
+java -XX:ArchiveClassesAtExit="$ARCHIVE" \
+    --module-path "$JAVAFX_LIB" --add-modules javafx.controls \
+    -cp "$RECIPEVAULT_CP" org.example.recipevault.Main --cds-training
+
+echo
+echo "Archive written to $ARCHIVE. Launch with:"
+echo "  java -XX:SharedArchiveFile=$ARCHIVE --module-path \"$JAVAFX_LIB\" --add-modules javafx.controls -cp \"$RECIPEVAULT_CP\" org.example.recipevault.Main --startup-report"